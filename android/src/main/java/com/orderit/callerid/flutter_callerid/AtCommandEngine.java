@@ -0,0 +1,264 @@
+package com.orderit.callerid.flutter_callerid;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues AT/vendor commands on the OUT endpoint and correlates the replies read from the IN
+ * endpoint back to them.
+ * <p>
+ * Up to {@code maxInFlight} commands are written ahead of their replies. Modems answer in
+ * order, so every final result code (OK, ERROR, ...) completes the oldest in-flight command and
+ * the lines before it are collected as that command's response. A command that times out after
+ * being written keeps its place in that order, so its late reply is dropped instead of being
+ * credited to the command behind it.
+ * <p>
+ * Writes run on {@code writer} and timeouts on {@code timers}, so a write stalled on the
+ * endpoint never holds back another command's timeout.
+ */
+class AtCommandEngine {
+    static final String STATUS_OK = "OK";
+    static final String STATUS_ERROR = "ERROR";
+    static final String STATUS_TIMEOUT = "TIMEOUT";
+    static final String STATUS_FAILED = "FAILED";
+    static final String STATUS_CANCELLED = "CANCELLED";
+
+    interface Transport {
+        boolean write(byte[] data);
+    }
+
+    interface Callback {
+        void onResult(Map<String, Object> result);
+    }
+
+    // A timed-out command's late reply is expected for its own timeout again, at least this long.
+    private static final long MIN_EXPIRED_GRACE_MS = 500;
+
+    private static final class Command {
+        final String text;
+        final Callback callback;
+        final long timeoutMs;
+        final long submittedAt = System.nanoTime();
+        final List<String> lines = new ArrayList<>();
+        ScheduledFuture<?> timeout;
+        String status;
+        boolean written;
+        boolean done;
+        // Timed out after being written; stays in flight until its reply or its grace runs out.
+        boolean expired;
+        long graceDeadline;
+
+        Command(String text, Callback callback, long timeoutMs) {
+            this.text = text;
+            this.callback = callback;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+
+    private final Transport transport;
+    private final ScheduledExecutorService timers;
+    private final Executor writer;
+    private final ArrayDeque<Command> pending = new ArrayDeque<>();
+    private final ArrayDeque<Command> inFlight = new ArrayDeque<>();
+    private final StringBuilder line = new StringBuilder();
+    private int maxInFlight;
+
+    AtCommandEngine(Transport transport, ScheduledExecutorService timers, Executor writer, int maxInFlight) {
+        this.transport = transport;
+        this.timers = timers;
+        this.writer = writer;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    void setMaxInFlight(int maxInFlight) {
+        synchronized (this) {
+            this.maxInFlight = Math.max(1, maxInFlight);
+        }
+        dispatch();
+    }
+
+    synchronized boolean isAwaitingResponse() {
+        return liveInFlight() > 0;
+    }
+
+    void submit(String command, long timeoutMs, Callback callback) {
+        String text = command.trim();
+        Command cmd = new Command(text, callback, timeoutMs);
+        synchronized (this) {
+            pending.addLast(cmd);
+            cmd.timeout = timers.schedule(() -> expire(cmd), timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        dispatch();
+    }
+
+    /**
+     * Feeds bytes read from the device. Returns false, leaving the data to the caller, when no
+     * command is in flight or the data is not a text response.
+     */
+    boolean onData(byte[] data, int length) {
+        List<Command> completed = new ArrayList<>();
+        synchronized (this) {
+            dropLapsed(System.nanoTime());
+            if (liveInFlight() == 0 || !isText(data, length)) return false;
+            for (int i = 0; i < length; i++) {
+                char c = (char) data[i];
+                if (c == '\r' || c == '\n') {
+                    Command cmd = onLine(line.toString().trim());
+                    if (cmd != null) completed.add(cmd);
+                    line.setLength(0);
+                } else if (c != 0) {
+                    line.append(c);
+                }
+            }
+        }
+        for (Command cmd : completed) {
+            deliver(cmd, cmd.status);
+        }
+        dispatch();
+        return true;
+    }
+
+    void cancelAll() {
+        List<Command> cancelled = new ArrayList<>();
+        synchronized (this) {
+            for (Command cmd : inFlight) {
+                if (!cmd.expired) cancelled.add(cmd);
+            }
+            cancelled.addAll(pending);
+            inFlight.clear();
+            pending.clear();
+            line.setLength(0);
+            for (Command cmd : cancelled) cmd.done = true;
+        }
+        for (Command cmd : cancelled) {
+            deliver(cmd, STATUS_CANCELLED);
+        }
+    }
+
+    // Returns the command completed by this line, if any.
+    private Command onLine(String text) {
+        if (text.isEmpty()) return null;
+        for (Command cmd : inFlight) {
+            if (cmd.text.equalsIgnoreCase(text)) {
+                // Echo: the device has moved past every timed-out command written before this one.
+                if (!cmd.expired) dropExpiredBefore(cmd);
+                return null;
+            }
+        }
+        Command head = inFlight.peekFirst();
+        if (head == null) return null;
+        if (isFinalResult(text)) {
+            inFlight.pollFirst();
+            if (head.expired) return null; // late reply to a command already reported as timed out
+            head.done = true;
+            head.status = text.equals(STATUS_OK) ? STATUS_OK : STATUS_ERROR;
+            if (!text.equals(STATUS_OK) && !text.equals(STATUS_ERROR)) head.lines.add(text);
+            return head;
+        }
+        if (!head.expired) head.lines.add(text);
+        return null;
+    }
+
+    private int liveInFlight() {
+        int live = 0;
+        for (Command cmd : inFlight) {
+            if (!cmd.expired) live++;
+        }
+        return live;
+    }
+
+    private void dropExpiredBefore(Command cmd) {
+        Iterator<Command> it = inFlight.iterator();
+        while (it.hasNext()) {
+            Command ahead = it.next();
+            if (ahead == cmd) return;
+            if (ahead.expired) it.remove();
+        }
+    }
+
+    // Timed-out commands whose reply never came stop holding their place.
+    private void dropLapsed(long now) {
+        Iterator<Command> it = inFlight.iterator();
+        while (it.hasNext()) {
+            Command cmd = it.next();
+            if (cmd.expired && now - cmd.graceDeadline >= 0) it.remove();
+        }
+    }
+
+    private void dispatch() {
+        List<Command> toWrite = new ArrayList<>();
+        synchronized (this) {
+            while (!pending.isEmpty() && liveInFlight() < maxInFlight) {
+                Command cmd = pending.pollFirst();
+                inFlight.addLast(cmd);
+                toWrite.add(cmd);
+            }
+        }
+        for (Command cmd : toWrite) {
+            writer.execute(() -> write(cmd));
+        }
+    }
+
+    private void write(Command cmd) {
+        synchronized (this) {
+            if (cmd.done) return;
+            cmd.written = true;
+        }
+        if (transport.write((cmd.text + "\r").getBytes(StandardCharsets.US_ASCII))) return;
+        synchronized (this) {
+            if (cmd.done || !inFlight.remove(cmd)) return;
+            cmd.done = true;
+        }
+        deliver(cmd, STATUS_FAILED);
+        dispatch();
+    }
+
+    private void expire(Command cmd) {
+        synchronized (this) {
+            if (cmd.done) return;
+            cmd.done = true;
+            if (cmd.written && inFlight.contains(cmd)) {
+                cmd.expired = true;
+                cmd.graceDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(cmd.timeoutMs, MIN_EXPIRED_GRACE_MS));
+            } else if (!inFlight.remove(cmd)) {
+                pending.remove(cmd);
+            }
+        }
+        deliver(cmd, STATUS_TIMEOUT);
+        dispatch();
+    }
+
+    private void deliver(Command cmd, String status) {
+        if (cmd.timeout != null) cmd.timeout.cancel(false);
+        HashMap<String, Object> result = new HashMap<>();
+        result.put("command", cmd.text);
+        result.put("status", status);
+        result.put("lines", new ArrayList<>(cmd.lines));
+        result.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - cmd.submittedAt));
+        cmd.callback.onResult(result);
+    }
+
+    private static boolean isFinalResult(String text) {
+        return text.equals(STATUS_OK) || text.equals(STATUS_ERROR) || text.startsWith("+CME ERROR") || text.startsWith("+CMS ERROR") || text.equals("NO CARRIER");
+    }
+
+    private static boolean isText(byte[] data, int length) {
+        boolean any = false;
+        for (int i = 0; i < length; i++) {
+            int b = data[i] & 0xFF;
+            if (b == 0) continue;
+            if (b != '\r' && b != '\n' && (b < 0x20 || b > 0x7E)) return false;
+            any = true;
+        }
+        return any;
+    }
+}
@@ -0,0 +1,157 @@
+package com.orderit.callerid.flutter_callerid;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses caller ID frames as sent by the device: {@code [port][type][len][len bytes][check]}.
+ * <p>
+ * Type 0x04 is SDMF (8 date characters followed by the number) and 0x80 is MDMF (a list of
+ * {@code [param][len][value]} fields). Every length byte is treated as unsigned and checked
+ * against the frame, so corrupt input is rejected without throwing.
+ */
+final class CliFrameParser {
+    static final int TYPE_SDMF = 0x04;
+    static final int TYPE_MDMF = 0x80;
+    static final int MAX_BODY_LENGTH = 64;
+
+    private static final int HEADER_LENGTH = 3;
+    private static final int PARAM_DATE = 0x01;
+    private static final int PARAM_NUMBER = 0x02;
+    private static final int PARAM_CALLEE = 0x22;
+    private static final int DATE_LENGTH = 8;
+
+    private static final boolean enableCheckDigitControl = true;
+
+    // Ethernet units that send text records instead of frames, e.g.
+    // "$01 I S 0000 G A1 10/19 10:30 AM 0612345678     JOHN SMITH". Only inbound call starts
+    // ("I S") carry caller ID; the other records report call progress.
+    private static final Pattern TEXT_RECORD = Pattern.compile(
+            "\\$?(\\d{2}) I S \\d{4} [GB] \\w\\d (\\d{2})/(\\d{2}) (\\d{2}):(\\d{2}) ([AP])M (\\S+)\\s*(.*)$");
+
+    private CliFrameParser() {
+    }
+
+    static final class CallerIdRecord {
+        final char port;
+        final String dateTime;
+        final String caller;
+        final String callee;
+        final String other;
+
+        CallerIdRecord(char port, String dateTime, String caller, String callee, String other) {
+            this.port = port;
+            this.dateTime = dateTime;
+            this.caller = caller;
+            this.callee = callee;
+            this.other = other;
+        }
+    }
+
+    static boolean isPort(int b) {
+        return b == 'A' || b == 'B' || b == 'C' || b == 'D' || b == 'S';
+    }
+
+    /**
+     * Returns the total frame length (header, body and check digit) when {@code data} starts
+     * with a plausible frame header, otherwise -1.
+     */
+    static int frameLength(byte[] data, int offset, int length) {
+        if (length < HEADER_LENGTH) return -1;
+        int type = data[offset + 1] & 0xFF;
+        int bodyLength = data[offset + 2] & 0xFF;
+        if (!isPort(data[offset]) || (type != TYPE_SDMF && type != TYPE_MDMF)) return -1;
+        if (bodyLength == 0 || bodyLength > MAX_BODY_LENGTH) return -1;
+        return bodyLength + HEADER_LENGTH + 1;
+    }
+
+    /**
+     * Parses the first {@code length} bytes of {@code data}; returns null when they do not hold
+     * a complete, valid frame.
+     */
+    static CallerIdRecord testCliPackage(byte[] data, int length) {
+        int frameLength = frameLength(data, 0, Math.min(length, data.length));
+        if (frameLength < 0 || frameLength > Math.min(length, data.length)) return null;
+        if ((data[1] & 0xFF) == TYPE_MDMF) return parseMDMF(data, frameLength);
+        return parseSDMF(data, frameLength);
+    }
+
+    static CallerIdRecord parseSDMF(byte[] data, int frameLength) {
+        if (frameLength > data.length || frameLength < HEADER_LENGTH + 1) return null;
+        if (enableCheckDigitControl && !testCheckDigit(data, frameLength)) return null;
+        int end = frameLength - 1;
+        int dateEnd = Math.min(HEADER_LENGTH + DATE_LENGTH, end);
+        String dateTime = decode(data, HEADER_LENGTH, dateEnd);
+        String caller = decode(data, dateEnd, end);
+        return new CallerIdRecord((char) (data[0] & 0xFF), dateTime, caller, "", "");
+    }
+
+    static CallerIdRecord parseMDMF(byte[] data, int frameLength) {
+        if (frameLength > data.length || frameLength < HEADER_LENGTH + 1) return null;
+        if (enableCheckDigitControl && !testCheckDigit(data, frameLength)) return null;
+        String dateTime = "";
+        String caller = "";
+        String callee = "";
+        StringBuilder other = new StringBuilder();
+        int end = frameLength - 1;
+        int i = HEADER_LENGTH;
+        while (i + 1 < end) {
+            int param = data[i] & 0xFF;
+            int start = i + 2;
+            int stop = Math.min(start + (data[i + 1] & 0xFF), end);
+            switch (param) {
+                case PARAM_DATE:
+                    dateTime = decode(data, start, Math.min(stop, start + DATE_LENGTH));
+                    break;
+                case PARAM_NUMBER:
+                    caller = decode(data, start, stop);
+                    break;
+                case PARAM_CALLEE:
+                    callee = decode(data, start, stop);
+                    break;
+                default:
+                    other.append(decode(data, start, stop));
+                    break;
+            }
+            i = stop;
+        }
+        return new CallerIdRecord((char) (data[0] & 0xFF), dateTime, caller, callee, other.toString());
+    }
+
+    /**
+     * Parses a text record line; returns null for anything that is not an inbound call start.
+     * The date is normalised to the MMDDhhmm form used by frames.
+     */
+    static CallerIdRecord parseTextRecord(String line) {
+        Matcher m = TEXT_RECORD.matcher(line);
+        if (!m.find()) return null;
+        int lineNumber = Integer.parseInt(m.group(1));
+        int hour = Integer.parseInt(m.group(4)) % 12;
+        if (m.group(6).equals("P")) hour += 12;
+        String dateTime = m.group(2) + m.group(3) + String.format(Locale.US, "%02d", hour) + m.group(5);
+        char port = lineNumber >= 1 && lineNumber <= 4 ? (char) ('A' + lineNumber - 1) : 'S';
+        return new CallerIdRecord(port, dateTime, m.group(7), "", m.group(8).trim());
+    }
+
+    /**
+     * The check digit makes the sum of every byte after the port, itself included, zero modulo
+     * 256.
+     */
+    static boolean testCheckDigit(byte[] data, int frameLength) {
+        if (frameLength < 2 || frameLength > data.length) return false;
+        int sum = 0;
+        for (int i = 1; i < frameLength; i++) {
+            sum += data[i] & 0xFF;
+        }
+        return (sum & 0xFF) == 0;
+    }
+
+    private static String decode(byte[] data, int from, int to) {
+        StringBuilder builder = new StringBuilder(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            builder.append((char) (data[i] & 0xFF));
+        }
+        return builder.toString();
+    }
+}
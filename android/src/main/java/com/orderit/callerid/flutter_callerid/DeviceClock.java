@@ -0,0 +1,63 @@
+package com.orderit.callerid.flutter_callerid;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Matches the MMDDhhmm time stamped by the caller ID unit against the host clock.
+ * <p>
+ * The unit sends neither year nor seconds, so the year is taken as the one that puts the device
+ * time closest to the host (a call read on Jan 1st may carry Dec 31st) and drift has a
+ * resolution of one minute.
+ */
+final class DeviceClock {
+    static final long RESOLUTION_MS = 60_000;
+
+    private DeviceClock() {
+    }
+
+    /**
+     * Returns the device time in epoch millis, or null when {@code dateTime} is not a valid
+     * MMDDhhmm value.
+     */
+    static Long deviceMillis(String dateTime, long hostWallMillis, TimeZone timeZone) {
+        if (dateTime == null || dateTime.length() != 8) return null;
+        for (int i = 0; i < 8; i++) {
+            if (dateTime.charAt(i) < '0' || dateTime.charAt(i) > '9') return null;
+        }
+        int month = Integer.parseInt(dateTime.substring(0, 2));
+        int day = Integer.parseInt(dateTime.substring(2, 4));
+        int hour = Integer.parseInt(dateTime.substring(4, 6));
+        int minute = Integer.parseInt(dateTime.substring(6, 8));
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59) return null;
+
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(hostWallMillis);
+        int hostYear = calendar.get(Calendar.YEAR);
+        Long best = null;
+        for (int year = hostYear - 1; year <= hostYear + 1; year++) {
+            calendar.clear();
+            calendar.setLenient(false);
+            calendar.set(year, month - 1, day, hour, minute, 0);
+            long millis;
+            try {
+                millis = calendar.getTimeInMillis();
+            } catch (IllegalArgumentException e) {
+                continue; // Feb 29th outside a leap year
+            }
+            if (best == null || Math.abs(millis - hostWallMillis) < Math.abs(best - hostWallMillis)) {
+                best = millis;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Device time minus host time, both truncated to the minute; 0 when the clocks agree.
+     */
+    static Long driftMillis(String dateTime, long hostWallMillis, TimeZone timeZone) {
+        Long device = deviceMillis(dateTime, hostWallMillis, timeZone);
+        if (device == null) return null;
+        return device - (hostWallMillis - hostWallMillis % RESOLUTION_MS);
+    }
+}
@@ -0,0 +1,193 @@
+package com.orderit.callerid.flutter_callerid;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Versioned snapshot of the attached USB devices.
+ * <p>
+ * Every change bumps the version and is recorded as a typed delta, so hot-plug events only
+ * describe the device that changed and the Dart side can resync cheaply with
+ * {@link #snapshotSince(long)} when it misses a version.
+ */
+class DeviceInventory {
+    static final String DELTA_ADDED = "added";
+    static final String DELTA_REMOVED = "removed";
+    static final String DELTA_PERMISSION_CHANGED = "permissionChanged";
+    static final String DELTA_LISTENING_CHANGED = "listeningChanged";
+
+    private static final int MAX_DELTAS = 64;
+
+    static final class Device {
+        final String name;
+        final String vendorId;
+        final String productId;
+
+        Device(String name, String vendorId, String productId) {
+            this.name = name;
+            this.vendorId = vendorId;
+            this.productId = productId;
+        }
+    }
+
+    private static final class Entry {
+        final Device device;
+        boolean hasPermission;
+        boolean listening;
+        Map<String, Object> data;
+
+        Entry(Device device, boolean hasPermission) {
+            this.device = device;
+            this.hasPermission = hasPermission;
+            rebuild();
+        }
+
+        // Cached so snapshots hand out the same map until the entry actually changes.
+        void rebuild() {
+            HashMap<String, Object> map = new HashMap<>();
+            map.put("name", device.name);
+            map.put("vendorId", device.vendorId);
+            map.put("productId", device.productId);
+            map.put("connected", hasPermission);
+            map.put("listening", listening);
+            data = Collections.unmodifiableMap(map);
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final ArrayDeque<Map<String, Object>> deltas = new ArrayDeque<>();
+    private long version = 0;
+    private boolean seeded = false;
+
+    static String key(String vendorId, String productId) {
+        return vendorId + ":" + productId;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    synchronized boolean isSeeded() {
+        return seeded;
+    }
+
+    synchronized boolean contains(String vendorId, String productId) {
+        return entries.containsKey(key(vendorId, productId));
+    }
+
+    synchronized boolean hasPermission(String vendorId, String productId) {
+        Entry entry = entries.get(key(vendorId, productId));
+        return entry != null && entry.hasPermission;
+    }
+
+    synchronized List<Map<String, Object>> getDevices() {
+        List<Map<String, Object>> data = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            data.add(entry.data);
+        }
+        return data;
+    }
+
+    /**
+     * Records an attached device. Returns the delta to publish, or null when nothing changed.
+     */
+    synchronized Map<String, Object> add(Device device, boolean hasPermission) {
+        String key = key(device.vendorId, device.productId);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            return updatePermission(entry, hasPermission);
+        }
+        entry = new Entry(device, hasPermission);
+        entries.put(key, entry);
+        return record(DELTA_ADDED, entry.data, false);
+    }
+
+    synchronized Map<String, Object> remove(String vendorId, String productId) {
+        Entry entry = entries.remove(key(vendorId, productId));
+        if (entry == null) return null;
+        return record(DELTA_REMOVED, entry.data, true);
+    }
+
+    synchronized Map<String, Object> setPermission(String vendorId, String productId, boolean hasPermission) {
+        Entry entry = entries.get(key(vendorId, productId));
+        if (entry == null) return null;
+        return updatePermission(entry, hasPermission);
+    }
+
+    synchronized Map<String, Object> setListening(String vendorId, String productId, boolean listening) {
+        Entry entry = entries.get(key(vendorId, productId));
+        if (entry == null || entry.listening == listening) return null;
+        entry.listening = listening;
+        entry.rebuild();
+        return record(DELTA_LISTENING_CHANGED, entry.data, false);
+    }
+
+    /**
+     * Brings the inventory in line with a full device scan and returns the deltas it produced.
+     */
+    synchronized List<Map<String, Object>> reconcile(Collection<Device> devices, Collection<String> permittedKeys) {
+        List<Map<String, Object>> changes = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        for (Device device : devices) {
+            String key = key(device.vendorId, device.productId);
+            present.add(key);
+            Map<String, Object> delta = add(device, permittedKeys.contains(key));
+            if (delta != null) changes.add(delta);
+        }
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (!present.contains(key(entry.device.vendorId, entry.device.productId))) {
+                changes.add(remove(entry.device.vendorId, entry.device.productId));
+            }
+        }
+        seeded = true;
+        return changes;
+    }
+
+    /**
+     * Returns the deltas after {@code sinceVersion} when they are still retained, otherwise a
+     * full device list. Either way the result carries the current version.
+     */
+    synchronized Map<String, Object> snapshotSince(long sinceVersion) {
+        HashMap<String, Object> snapshot = new HashMap<>();
+        snapshot.put("version", version);
+        long oldest = deltas.isEmpty() ? version + 1 : (long) deltas.peekFirst().get("version");
+        if (sinceVersion > 0 && sinceVersion <= version && sinceVersion + 1 >= oldest) {
+            List<Map<String, Object>> missed = new ArrayList<>();
+            for (Map<String, Object> delta : deltas) {
+                if ((long) delta.get("version") > sinceVersion) missed.add(delta);
+            }
+            snapshot.put("full", false);
+            snapshot.put("deltas", missed);
+        } else {
+            snapshot.put("full", true);
+            snapshot.put("devices", getDevices());
+        }
+        return snapshot;
+    }
+
+    private Map<String, Object> updatePermission(Entry entry, boolean hasPermission) {
+        if (entry.hasPermission == hasPermission) return null;
+        entry.hasPermission = hasPermission;
+        entry.rebuild();
+        return record(DELTA_PERMISSION_CHANGED, entry.data, false);
+    }
+
+    private Map<String, Object> record(String type, Map<String, Object> data, boolean isRemove) {
+        version++;
+        HashMap<String, Object> delta = new HashMap<>(data);
+        delta.put("type", type);
+        delta.put("version", version);
+        delta.put("isRemove", isRemove);
+        deltas.addLast(delta);
+        if (deltas.size() > MAX_DELTAS) deltas.removeFirst();
+        return delta;
+    }
+}
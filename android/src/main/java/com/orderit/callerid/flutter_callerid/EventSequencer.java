@@ -0,0 +1,62 @@
+package com.orderit.callerid.flutter_callerid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+/**
+ * Hands caller ID events to the sink in the order of the reads that produced them.
+ * <p>
+ * Every read takes its sequence number from {@link #begin()} and stays in progress until
+ * {@link #end(long)}. An event is only released once every read with a lower number has ended,
+ * so a USB read still being parsed holds back a network event read after it, and the other way
+ * round. Events from the same read keep the order they were offered in.
+ */
+final class EventSequencer {
+    private final Executor sink;
+    private final TreeSet<Long> inProgress = new TreeSet<>();
+    private final TreeMap<Long, List<Runnable>> queued = new TreeMap<>();
+
+    EventSequencer(Executor sink) {
+        this.sink = sink;
+    }
+
+    synchronized long begin() {
+        long seq = EventTrace.nextSeq();
+        inProgress.add(seq);
+        return seq;
+    }
+
+    synchronized void end(long seq) {
+        inProgress.remove(seq);
+        release();
+    }
+
+    synchronized void offer(long seq, Runnable event) {
+        List<Runnable> events = queued.get(seq);
+        if (events == null) {
+            events = new ArrayList<>(1);
+            queued.put(seq, events);
+        }
+        events.add(event);
+        release();
+    }
+
+    synchronized int queuedReads() {
+        return queued.size();
+    }
+
+    // Submitted while holding the lock, so the sink sees events in the order they were released.
+    private void release() {
+        long lowest = inProgress.isEmpty() ? Long.MAX_VALUE : inProgress.first();
+        while (!queued.isEmpty() && queued.firstKey() < lowest) {
+            Map.Entry<Long, List<Runnable>> entry = queued.pollFirstEntry();
+            for (Runnable event : entry.getValue()) {
+                sink.execute(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.orderit.callerid.flutter_callerid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic timestamps for one caller ID event, from the read that delivered it to the sink
+ * that hands it to Dart.
+ * <p>
+ * The sequence number is taken at the read itself, before any framing, so it orders reads from
+ * every port, device and transport; events framed out of the same read share it.
+ * {@link EventSequencer} uses it to hand events to Dart in that order.
+ */
+final class EventTrace {
+    interface Clock {
+        long elapsedNanos();
+
+        long wallMillis();
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long elapsedNanos() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public long wallMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    static final int STAGE_READ = 0;
+    static final int STAGE_FRAME = 1;
+    static final int STAGE_PARSE = 2;
+    static final int STAGE_DISPATCH = 3;
+    static final int STAGE_SINK = 4;
+
+    private static final String[] STAGE_NAMES = {"read", "frame", "parse", "dispatch", "sink"};
+    private static final AtomicLong sequence = new AtomicLong();
+
+    final long seq;
+    final long readNanos;
+    final long readWallMillis;
+    private final Clock clock;
+    private final long[] stages = new long[STAGE_NAMES.length];
+
+    EventTrace(Clock clock, long seq, long readNanos, long readWallMillis) {
+        this.seq = seq;
+        this.clock = clock;
+        this.readNanos = readNanos;
+        this.readWallMillis = readWallMillis;
+        stages[STAGE_READ] = readNanos;
+    }
+
+    static long nextSeq() {
+        return sequence.incrementAndGet();
+    }
+
+    static EventTrace atRead(Clock clock, long seq) {
+        return new EventTrace(clock, seq, clock.elapsedNanos(), clock.wallMillis());
+    }
+
+    void stamp(int stage) {
+        stages[stage] = clock.elapsedNanos();
+    }
+
+    long stage(int stage) {
+        return stages[stage];
+    }
+
+    /**
+     * Adds the sequence number, read time, every stamped stage and, once the sink is stamped,
+     * the end-to-end latency to {@code event}.
+     */
+    void writeTo(Map<String, Object> event) {
+        event.put("seq", seq);
+        event.put("rxNanos", readNanos);
+        event.put("rxWallMs", readWallMillis);
+        HashMap<String, Object> stageMap = new HashMap<>();
+        for (int i = 0; i < stages.length; i++) {
+            if (stages[i] != 0) stageMap.put(STAGE_NAMES[i], stages[i]);
+        }
+        event.put("stages", stageMap);
+        if (stages[STAGE_SINK] != 0) {
+            event.put("latencyNanos", stages[STAGE_SINK] - readNanos);
+        }
+    }
+}
@@ -20,10 +20,17 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,6 +38,7 @@ import android.content.BroadcastReceiver;
 import android.content.IntentFilter;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.hoho.android.usbserial.BuildConfig;
@@ -50,19 +58,41 @@ public class FlutterCallerIdMethod {
     private static final String ACTION_USB_DETACHED = "android.hardware.usb.action.USB_DEVICE_DETACHED";
     private static final String TAG = "FPP";
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final EventTrace.Clock clock = new EventTrace.Clock() {
+        @Override
+        public long elapsedNanos() {
+            return SystemClock.elapsedRealtimeNanos();
+        }
+
+        @Override
+        public long wallMillis() {
+            return System.currentTimeMillis();
+        }
+    };
     private Thread readThread;
+    // USB and network reads run on different threads; events reach Dart in read order.
+    private final EventSequencer callerIdSequencer = new EventSequencer(mainHandler::post);
 
     private EventChannel.EventSink deviceEventSink;
     private EventChannel.EventSink callerIdEventSink;
+    private EventChannel.EventSink discoveryEventSink;
 
     private BroadcastReceiver usbStateChangeReceiver;
+    private boolean usbReceiverRegistered = false;
+    private final DeviceInventory inventory = new DeviceInventory();
     private UsbDeviceConnection connection;
     private UsbInterface mIntf;
 
     private UsbEndpoint rEndpoint;
     private UsbEndpoint wEndpoint;
-    private boolean reading = false;
+    private volatile boolean reading = false;
     private static final int TIMEOUT = 3000;
+    private static final int DEFAULT_COMMAND_WINDOW = 1;
+    private final ScheduledExecutorService commandTimers = Executors.newSingleThreadScheduledExecutor();
+    // Writes block on the endpoint for up to TIMEOUT, so they must not share the timer thread.
+    private final ExecutorService commandWriter = Executors.newSingleThreadExecutor();
+    private AtCommandEngine commandEngine;
+    private int commandWindow = DEFAULT_COMMAND_WINDOW;
     private static int SLEEP = 100;
     private static final String ACK = "ACK\r\n";
     private static final String DCK = "DCK\r\n";
@@ -88,11 +118,17 @@ public class FlutterCallerIdMethod {
                 } else {
                     context.registerReceiver(usbStateChangeReceiver, filter);
                 }
+                usbReceiverRegistered = true;
+                // Anything that changed while nobody was listening goes out as deltas.
+                for (Map<String, Object> delta : refreshInventory()) {
+                    publishDelta(delta);
+                }
             }
 
             @Override
             public void onCancel(Object args) {
                 context.unregisterReceiver(usbStateChangeReceiver);
+                usbReceiverRegistered = false;
                 deviceEventSink = null;
             }
         };
@@ -112,6 +148,20 @@ public class FlutterCallerIdMethod {
         };
     }
 
+    public EventChannel.StreamHandler getDiscoveryStreamHandler() {
+        return new EventChannel.StreamHandler() {
+            @Override
+            public void onListen(Object args, EventChannel.EventSink events) {
+                discoveryEventSink = events;
+            }
+
+            @Override
+            public void onCancel(Object args) {
+                discoveryEventSink = null;
+            }
+        };
+    }
+
     private void createUsbStateChangeReceiver() {
         usbStateChangeReceiver = new BroadcastReceiver() {
             @SuppressLint("LongLogTag")
@@ -120,7 +170,10 @@ public class FlutterCallerIdMethod {
                 if (Objects.equals(intent.getAction(), ACTION_USB_ATTACHED)) {
                     UsbDevice device = intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
                     AppLogger.d(TAG, "ACTION_USB_ATTACHED");
-                    sendDevice(device, false);
+                    if (device != null) {
+                        UsbManager m = (UsbManager) context.getSystemService(USB_SERVICE);
+                        publishDelta(inventory.add(toInventoryDevice(device), m.hasPermission(device)));
+                    }
                 } else if (Objects.equals(intent.getAction(), ACTION_USB_DETACHED)) {
                     UsbDevice device = intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
                     AppLogger.d(TAG, "ACTION_USB_DETACHED");
@@ -129,15 +182,19 @@ public class FlutterCallerIdMethod {
                         stopListening();
                     }
 
-                    sendDevice(device, true);
+                    if (device != null) {
+                        publishDelta(inventory.remove(String.valueOf(device.getVendorId()), String.valueOf(device.getProductId())));
+                    }
                 } else if (Objects.equals(intent.getAction(), ACTION_USB_PERMISSION)) {
                     AppLogger.d(TAG, "ACTION_USB_PERMISSION " + (intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false)));
                     synchronized (this) {
                         UsbDevice device = intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
                         boolean permissionGranted = intent.getBooleanExtra(UsbManager.EXTRA_PERMISSION_GRANTED, false);
+                        if (device != null) {
+                            publishDelta(inventory.setPermission(String.valueOf(device.getVendorId()), String.valueOf(device.getProductId()), permissionGranted));
+                        }
                         if (permissionGranted) {
                             AppLogger.d(TAG, "Permission granted for device " + device);
-                            sendDevice(device, false);
                         } else {
                             AppLogger.d(TAG, "Permission denied for device " + device);
                             connect(connectionVendorId, connectionProductId);
@@ -149,44 +206,53 @@ public class FlutterCallerIdMethod {
     }
 
 
-    private void sendDevice(UsbDevice device, boolean isRemove) {
-        if (device == null) {
-            AppLogger.d(TAG, "Device is null.");
-            return;
-        }
-        boolean isConnected = isConnected(String.valueOf(device.getVendorId()), String.valueOf(device.getProductId()));
-        HashMap<String, Object> deviceData = new HashMap<>();
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            deviceData.put("name", device.getProductName());
-        }
-        deviceData.put("vendorId", String.valueOf(device.getVendorId()));
-        deviceData.put("productId", String.valueOf(device.getProductId()));
-        deviceData.put("connected", isConnected);
-        deviceData.put("isRemove", isRemove);
-        AppLogger.d(TAG, "Sending device data: " + deviceData);
+    private void publishDelta(Map<String, Object> delta) {
+        if (delta == null) return;
+        AppLogger.d(TAG, "Sending device delta: " + delta);
         if (deviceEventSink != null) {
-            mainHandler.post(() -> deviceEventSink.success(deviceData));
+            mainHandler.post(() -> {
+                if (deviceEventSink != null) deviceEventSink.success(delta);
+            });
         }
-
     }
 
+    private DeviceInventory.Device toInventoryDevice(UsbDevice device) {
+        String name = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            name = device.getProductName();
+        }
+        return new DeviceInventory.Device(name, String.valueOf(device.getVendorId()), String.valueOf(device.getProductId()));
+    }
 
-    public List<Map<String, Object>> getUsbDevicesList() {
+    // Full scan of the bus; only needed to seed the inventory or while broadcasts are not received.
+    private List<Map<String, Object>> refreshInventory() {
         UsbManager m = (UsbManager) context.getSystemService(USB_SERVICE);
-        HashMap<String, UsbDevice> usbDevices = m.getDeviceList();
-        List<Map<String, Object>> data = new ArrayList<Map<String, Object>>();
-        for (Map.Entry<String, UsbDevice> entry : usbDevices.entrySet()) {
-            UsbDevice device = entry.getValue();
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                HashMap<String, Object> deviceData = new HashMap<String, Object>();
-                deviceData.put("name", device.getProductName());
-                deviceData.put("vendorId", String.valueOf(device.getVendorId()));
-                deviceData.put("productId", String.valueOf(device.getProductId()));
-                deviceData.put("connected", m.hasPermission(device));
-                data.add(deviceData);
+        List<DeviceInventory.Device> devices = new ArrayList<>();
+        Set<String> permitted = new HashSet<>();
+        for (UsbDevice device : m.getDeviceList().values()) {
+            DeviceInventory.Device entry = toInventoryDevice(device);
+            devices.add(entry);
+            if (m.hasPermission(device)) permitted.add(DeviceInventory.key(entry.vendorId, entry.productId));
+        }
+        return inventory.reconcile(devices, permitted);
+    }
+
+    private void refreshInventoryIfStale() {
+        if (!usbReceiverRegistered || !inventory.isSeeded()) {
+            for (Map<String, Object> delta : refreshInventory()) {
+                publishDelta(delta);
             }
         }
-        return data;
+    }
+
+    public List<Map<String, Object>> getUsbDevicesList() {
+        refreshInventoryIfStale();
+        return inventory.getDevices();
+    }
+
+    public Map<String, Object> getDeviceSnapshot(long sinceVersion) {
+        refreshInventoryIfStale();
+        return inventory.snapshotSince(sinceVersion);
     }
 
     private String connectionVendorId;
@@ -212,11 +278,14 @@ public class FlutterCallerIdMethod {
             m.requestPermission(device, permissionIntent);
         } else {
             AppLogger.d(TAG, "Permission already granted. Proceeding.");
-            sendDevice(device, false); // Proceed directly if permission exists
+            publishDelta(inventory.setPermission(vendorId, productId, true));
         }
     }
 
     public boolean isConnected(String vendorId, String productId) {
+        if (usbReceiverRegistered && inventory.isSeeded()) {
+            return inventory.hasPermission(vendorId, productId);
+        }
         UsbDevice device = findDevice((UsbManager) context.getSystemService(USB_SERVICE), vendorId, productId);
         return device != null && ((UsbManager) context.getSystemService(USB_SERVICE)).hasPermission(device);
     }
@@ -229,7 +298,6 @@ public class FlutterCallerIdMethod {
         UsbDeviceConnection connection = ((UsbManager) context.getSystemService(USB_SERVICE)).openDevice(device);
         connection.releaseInterface(device.getInterface(0));
         connection.close();
-        sendDevice(device, false);
         return true;
     }
 
@@ -304,10 +372,12 @@ public class FlutterCallerIdMethod {
         }
 
         AppLogger.d(TAG, "Claimed interface and endpoints. Starting read loop...");
-        sendData("AT+VCID=1\\r");
+        commandEngine = new AtCommandEngine(this::writeCommand, commandTimers, commandWriter, commandWindow);
+        reading = true;
         readThread = new Thread(this::readLoop);
         readThread.start();
-        reading = true;
+        commandEngine.submit("AT+VCID=1", TIMEOUT, r -> AppLogger.d(TAG, "AT+VCID=1 -> " + r.get("status") + " " + r.get("lines")));
+        publishDelta(inventory.setListening(vendorId, productId, true));
     }
 
     private void readLoop() {
@@ -316,7 +386,12 @@ public class FlutterCallerIdMethod {
         while (reading) {
             int len = connection.bulkTransfer(rEndpoint, buffer, buffer.length, TIMEOUT);
             if (len > 0) {
-                analyzePackage(buffer);
+                long seq = callerIdSequencer.begin();
+                try {
+                    analyzePackage(buffer, len, EventTrace.atRead(clock, seq));
+                } finally {
+                    callerIdSequencer.end(seq);
+                }
             } else if (len == -1) {
                 AppLogger.w(TAG, "No data or timeout.");
             }
@@ -324,35 +399,25 @@ public class FlutterCallerIdMethod {
         }
     }
 
-    private String sDateTime = "";
-    private String sCaller = "";
-    private String sCallee = "";
-    private String sOther = "";
-    private char sPort = 0;
-
-    private void analyzePackage(byte[] bytes) {
+    private void analyzePackage(byte[] bytes, int length, EventTrace trace) {
         try {
-            final String strPackage = composeString(bytes);
+            final String strPackage = composeString(bytes, length);
             AppLogger.d("analyzePackage", strPackage);
 
             if (strPackage.contains("ENQ") ||strPackage.contains("ETB")){
                 sendData(ACK);
+            } else if (commandEngine != null && commandEngine.onData(bytes, length)) {
+                AppLogger.d("analyzePackage", "Command response consumed.");
             }
 //            else if (strPackage.contains("STA")) echoLineEvent(strPackage);
             else {
+                trace.stamp(EventTrace.STAGE_FRAME);
                 sendData(DCK);
-                if (testCliPackage(bytes)) {
-                    //TODO pass data to flutter
-                    AppLogger.d("analyzePackage", sDateTime + "<-- " + sCaller + "-----" + sCallee + "-----" + sPort + "-----" + sOther);
-                    Map<String, Object> callInfo = new HashMap<>();
-                    callInfo.put("caller", sCaller);
-                    callInfo.put("callee", sCallee);
-                    callInfo.put("datetime", sDateTime);
-                    callInfo.put("port", String.valueOf(sPort));
-                    if (callerIdEventSink != null)
-                        mainHandler.post(() -> callerIdEventSink.success(callInfo));
-
-
+                CliFrameParser.CallerIdRecord record = CliFrameParser.testCliPackage(bytes, length);
+                trace.stamp(EventTrace.STAGE_PARSE);
+                if (record != null) {
+                    UsbDevice device = listeningDevice;
+                    dispatchCallerId(record, device == null ? "usb" : "usb://" + device.getVendorId() + ":" + device.getProductId(), trace);
                 }
             }
         } catch (Exception e) {
@@ -360,172 +425,139 @@ public class FlutterCallerIdMethod {
         }
     }
 
-    private boolean testCliPackage(byte[] Package) {
-        boolean res = false;
-        try {
-            byte[] portNames = {'A', 'B', 'C', 'D', 'S'};
-            int[] pckTypes = {0x04, 0x80};
+    private void dispatchCallerId(CliFrameParser.CallerIdRecord record, String source, EventTrace trace) {
+        trace.stamp(EventTrace.STAGE_DISPATCH);
+        AppLogger.d("analyzePackage", record.dateTime + "<-- " + record.caller + "-----" + record.callee + "-----" + record.port + "-----" + record.other + " from " + source);
+        Map<String, Object> callInfo = new HashMap<>();
+        callInfo.put("caller", record.caller);
+        callInfo.put("callee", record.callee);
+        callInfo.put("datetime", record.dateTime);
+        callInfo.put("port", String.valueOf(record.port));
+        callInfo.put("source", source);
+        TimeZone timeZone = TimeZone.getDefault();
+        Long deviceMillis = DeviceClock.deviceMillis(record.dateTime, trace.readWallMillis, timeZone);
+        if (deviceMillis != null) {
+            callInfo.put("deviceTimeMs", deviceMillis);
+            callInfo.put("deviceClockDriftMs", DeviceClock.driftMillis(record.dateTime, trace.readWallMillis, timeZone));
+        }
+        callerIdSequencer.offer(trace.seq, () -> {
+            trace.stamp(EventTrace.STAGE_SINK);
+            trace.writeTo(callInfo);
+            if (callerIdEventSink != null) callerIdEventSink.success(callInfo);
+        });
+    }
 
-            byte pPort = Package[0];
-            int pType = Math.abs((int) Package[1]);
-            int pLen = Math.abs((int) Package[2]);
+    private final NetworkCallerIdTransport.Listener networkListener = new NetworkCallerIdTransport.Listener() {
+        @Override
+        public void onRecord(String source, CliFrameParser.CallerIdRecord record, EventTrace trace) {
+            dispatchCallerId(record, source, trace);
+        }
 
-            if ((pLen > 0) && (pLen < 65) && Arrays.binarySearch(portNames, pPort) >= 0 && Arrays.binarySearch(pckTypes, pType) >= 0) {
-                if (pType == 0x80) {
-                    res = parseMDMF(Package);
-                }
-                if (pType == 0x04) {
-                    res = parseSDMF(Package);
-                }
-            }
-        } catch (Exception e) {
-            AppLogger.d("testCliPackage", Log.getStackTraceString(e));
+        @Override
+        public void onSession(String source, boolean open) {
+            AppLogger.d(TAG, "Network session " + (open ? "opened: " : "closed: ") + source);
         }
-        return res;
-    }
 
-    private boolean parseSDMF(byte[] Package) {
-        int packlength = 0;
-        char theChar = 0;
+        @Override
+        public void onError(String source, IOException e) {
+            AppLogger.w(TAG, "Network error on " + source + ": " + e.getMessage());
+        }
+    };
 
-        try {
-            packlength = Package[2] + 4;
-            sPort = (char) Package[0];
-            sCaller = "";
-            sCallee = "";
-            sDateTime = "";
-            sOther = "";
-
-            for (int i = 3; i <= packlength - 2; i++) {
-                if (i < Package.length) {
-                    theChar = (char) Package[i];
-                    if (i < 11) {
-                        sDateTime = sDateTime + (char) Package[i];
-                    } else {
-                        sCaller = sCaller + theChar;
-                    }
+    private NetworkCallerIdTransport networkTransport;
+
+    /**
+     * Starts receiving from Ethernet units: on a shared UDP port when {@code udpPort} is set, and
+     * over TCP from every "host:port" in {@code hosts}. Returns the bound UDP port or -1.
+     */
+    public int startNetworkListening(Integer udpPort, List<String> hosts) throws IOException {
+        if (networkTransport == null) {
+            networkTransport = new NetworkCallerIdTransport(networkListener, clock, callerIdSequencer);
+        }
+        networkTransport.start();
+        int boundPort = -1;
+        if (udpPort != null) {
+            boundPort = networkTransport.listenUdp(udpPort);
+            AppLogger.d(TAG, "Listening for network caller ID on UDP " + boundPort);
+        }
+        if (hosts != null) {
+            for (String host : hosts) {
+                int separator = host.lastIndexOf(':');
+                if (separator <= 0) {
+                    AppLogger.w(TAG, "Ignoring network unit without port: " + host);
+                    continue;
                 }
+                networkTransport.connectTcp(host.substring(0, separator), Integer.parseInt(host.substring(separator + 1)));
             }
-        } catch (Exception e) {
-            AppLogger.d("CEBridge - parsesDMF", Log.getStackTraceString(e));
         }
-
-        return (!enableCheckDigitControl || testCheckDigit(Package));
+        return boundPort;
     }
 
-    private boolean parseMDMF(byte[] Package) {
-        int packlength = 0;
-        int datalength = 0;
-        char theChar = 0;
-        int i;
-
-        try {
-            packlength = Package[2] + 4;
-            sPort = (char) Package[0];
-            sCaller = "";
-            sCallee = "";
-            sDateTime = "";
-            sOther = "";
-
-            if (packlength > Package.length) {
-                packlength = Package.length;
-            }
+    private SubnetScanner subnetScanner;
+
+    private final SubnetScanner.Listener discoveryListener = new SubnetScanner.Listener() {
+        @Override
+        public void onHost(int scanId, String address, int port, long latencyMs) {
+            AppLogger.d(TAG, "Discovered " + address + ":" + port + " in " + latencyMs + "ms");
+            Map<String, Object> event = new HashMap<>();
+            event.put("type", "host");
+            event.put("scanId", scanId);
+            event.put("address", address);
+            event.put("port", port);
+            event.put("latencyMs", latencyMs);
+            postDiscoveryEvent(event);
+        }
 
-            if (packlength > 0) {
-                i = 3;
-                datalength = 0;
-                while (i < Package.length) {
-                    if (Package[i] == 1) // Date Field
-                    {
-                        i++;
-                        if (i < packlength - 1) {
-                            datalength = Package[i];
-                            if (datalength != 8) datalength = 8;
-                            if (datalength == 8) {
-                                while ((datalength > 0) && (datalength < packlength)) {
-                                    i++;
-                                    theChar = (char) Package[i];
-                                    sDateTime = sDateTime + theChar;
-                                    datalength--;
-                                }
-                            }
-                        }
-                    } else if (Package[i] == 2)  // Number Field
-                    {
-                        i++;
-                        if (i < packlength - 1) {
-                            datalength = Package[i];
-                            if (datalength > (packlength - i - 1))
-                                datalength = (packlength - i - 1);
-                            while ((datalength > 0) && (datalength < packlength)) {
-                                i++;
-                                theChar = (char) Package[i];
-                                sCaller = sCaller + theChar;
-                                datalength--;
-                            }
-                        }
-                    } else if (Package[i] == 34)  //Callee field
-                    {
-                        // Other Fields
-                        i++;
-                        if (i < packlength - 1) {
-                            datalength = Package[i];
-                            while ((datalength > 0) && (datalength < packlength)) {
-                                i++;
-                                theChar = (char) Package[i];
-                                sCallee = sCallee + theChar;
-                                datalength--;
-                            }
-                        }
-                    } else {
-                        // Other Fields
-                        i++;
-                        if (i < packlength - 1) {
-                            datalength = Package[i];
-                            while ((datalength > 0) && (datalength < packlength)) {
-                                i++;
-                                theChar = (char) Package[i];
-                                sOther = sOther + theChar;
-                                datalength--;
-                            }
-                        }
-                    }
-                    i++;
-                }
-            }
-        } catch (Exception e) {
-            AppLogger.d("CEBridge - parseMDMF", Log.getStackTraceString(e));
+        @Override
+        public void onComplete(int scanId, int probed, int found, boolean cancelled) {
+            AppLogger.d(TAG, "Discovery " + scanId + " finished: " + found + "/" + probed + (cancelled ? " (cancelled)" : ""));
+            Map<String, Object> event = new HashMap<>();
+            event.put("type", "done");
+            event.put("scanId", scanId);
+            event.put("probed", probed);
+            event.put("found", found);
+            event.put("cancelled", cancelled);
+            postDiscoveryEvent(event);
         }
+    };
 
-        return (!enableCheckDigitControl || testCheckDigit(Package));
+    private void postDiscoveryEvent(Map<String, Object> event) {
+        mainHandler.post(() -> {
+            if (discoveryEventSink != null) discoveryEventSink.success(event);
+        });
     }
 
-    private static final boolean enableCheckDigitControl = true;
+    /**
+     * Probes every host of the /24 {@code subnet} (e.g. "192.168.1") on {@code port}; hosts are
+     * streamed through the discovery event channel as they answer, tagged with {@code scanId}.
+     * A scan still running is cancelled and its remaining events keep their own id.
+     */
+    public void startDiscovery(int scanId, String subnet, int port, long timeoutMs, int maxInFlight, int maxResults) throws IOException {
+        if (subnetScanner == null) {
+            subnetScanner = new SubnetScanner(discoveryListener);
+        }
+        subnetScanner.start(scanId, SubnetScanner.subnetHosts(subnet), port, timeoutMs, maxInFlight, maxResults);
+    }
 
-    private static boolean testCheckDigit(byte[] inputReport) {
-        int pLen = 0;
-        int cDigit = 123;
-        int pDigit = 0;
+    public void stopDiscovery() {
+        if (subnetScanner != null) subnetScanner.cancel();
+    }
 
-        try {
-            pLen = inputReport[2] + 3;
-            cDigit = inputReport[pLen] & 255;
-            for (int i = 1; i < pLen; i++)
-                pDigit = (pDigit + Math.abs((int) inputReport[i] & 255)) & 255;
-            pDigit = Math.abs((int) (0x100 - pDigit)) & 255;
-        } catch (Exception e) {
-            AppLogger.d("testCheckDigit", Log.getStackTraceString(e));
+    public void stopNetworkListening() {
+        if (networkTransport != null) {
+            networkTransport.stop();
+            networkTransport = null;
         }
-
-        return pDigit == cDigit;
+        AppLogger.d(TAG, "Stopped listening to network caller ID.");
     }
 
-    private String composeString(byte[] bytes) {
+    private String composeString(byte[] bytes, int length) {
         String strPackage = "";
 
         try {
             StringBuilder builder = new StringBuilder();
-            for (byte b : bytes) {
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
                 if (b > 0) {
                     char c = (char) b;
                     builder.append(c);
@@ -550,6 +582,10 @@ public class FlutterCallerIdMethod {
 
     public void stopListening() {
         reading = false;
+        if (commandEngine != null) {
+            commandEngine.cancelAll();
+            commandEngine = null;
+        }
         if (readThread != null && readThread.isAlive()) {
             try {
                 readThread.join(500);
@@ -571,10 +607,25 @@ public class FlutterCallerIdMethod {
         }
         rEndpoint = null;
         wEndpoint = null;
+        if (listeningDevice != null) {
+            publishDelta(inventory.setListening(String.valueOf(listeningDevice.getVendorId()), String.valueOf(listeningDevice.getProductId()), false));
+        }
         listeningDevice = null;
         AppLogger.d(TAG, "Stopped listening to Caller ID.");
     }
 
+    /**
+     * Stops every reader and scanner and releases the command threads; the instance is not
+     * usable afterwards.
+     */
+    public void dispose() {
+        stopListening();
+        stopNetworkListening();
+        stopDiscovery();
+        commandTimers.shutdownNow();
+        commandWriter.shutdownNow();
+    }
+
     private UsbDevice findDevice(UsbManager manager, String vendorId, String productId) {
         for (UsbDevice device : manager.getDeviceList().values()) {
             if (String.valueOf(device.getVendorId()).equals(vendorId) && String.valueOf(device.getProductId()).equals(productId))
@@ -583,6 +634,50 @@ public class FlutterCallerIdMethod {
         return null;
     }
 
+    public boolean sendCommand(String command, long timeoutMs, AtCommandEngine.Callback callback) {
+        AtCommandEngine engine = commandEngine;
+        if (engine == null) return false;
+        engine.submit(command, timeoutMs, result -> mainHandler.post(() -> callback.onResult(result)));
+        return true;
+    }
+
+    public boolean sendCommands(List<String> commands, long timeoutMs, CommandsCallback callback) {
+        AtCommandEngine engine = commandEngine;
+        if (engine == null) return false;
+        List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(commands.size(), null));
+        int[] remaining = {commands.size()};
+        if (commands.isEmpty()) {
+            mainHandler.post(() -> callback.onResults(results));
+            return true;
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            final int index = i;
+            engine.submit(commands.get(i), timeoutMs, result -> mainHandler.post(() -> {
+                results.set(index, result);
+                if (--remaining[0] == 0) callback.onResults(results);
+            }));
+        }
+        return true;
+    }
+
+    public void setCommandWindow(int maxInFlight) {
+        commandWindow = Math.max(1, maxInFlight);
+        if (commandEngine != null) commandEngine.setMaxInFlight(commandWindow);
+    }
+
+    interface CommandsCallback {
+        void onResults(List<Map<String, Object>> results);
+    }
+
+    private boolean writeCommand(byte[] data) {
+        UsbDeviceConnection conn = connection;
+        UsbEndpoint endpoint = wEndpoint;
+        if (conn == null || endpoint == null) return false;
+        int result = conn.bulkTransfer(endpoint, data, data.length, TIMEOUT);
+        AppLogger.d(TAG, "writeCommand " + (result >= 0 ? "success" : "fail") + ": " + new String(data, StandardCharsets.US_ASCII).trim());
+        return result >= 0;
+    }
+
     private void sendData(String message) {
         try {
             if (connection != null && wEndpoint != null) {
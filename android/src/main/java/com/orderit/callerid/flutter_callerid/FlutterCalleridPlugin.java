@@ -21,10 +21,15 @@ import io.flutter.plugin.common.MethodChannel.Result;
  * FlutterCalleridPlugin
  */
 public class FlutterCalleridPlugin implements FlutterPlugin, MethodCallHandler {
+    private static final long COMMAND_TIMEOUT_MS = 3000;
+    private static final int DISCOVERY_PORT = 9100;
+    private static final long DISCOVERY_TIMEOUT_MS = 2000;
+    private static final int DISCOVERY_MAX_IN_FLIGHT = 256;
 
     private MethodChannel methodChannel;
     private EventChannel deviceEventChannel;
     private EventChannel callerIdEventChannel;
+    private EventChannel discoveryEventChannel;
     private Context context;
     private FlutterCallerIdMethod flutterCallerIdMethod;
 
@@ -34,10 +39,12 @@ public class FlutterCalleridPlugin implements FlutterPlugin, MethodCallHandler {
         methodChannel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "flutter_callerid");
         deviceEventChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), "flutter_callerid/device_events");
         callerIdEventChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), "flutter_callerid/callerid_events");
+        discoveryEventChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), "flutter_callerid/discovery_events");
         methodChannel.setMethodCallHandler(this);
         flutterCallerIdMethod = new FlutterCallerIdMethod(context);
         deviceEventChannel.setStreamHandler(flutterCallerIdMethod.getDeviceStreamHandler());
         callerIdEventChannel.setStreamHandler(flutterCallerIdMethod.getCallerIdStreamHandler());
+        discoveryEventChannel.setStreamHandler(flutterCallerIdMethod.getDiscoveryStreamHandler());
 
     }
 
@@ -51,6 +58,11 @@ public class FlutterCalleridPlugin implements FlutterPlugin, MethodCallHandler {
 //                    result.error("GET_USB_FAILED", e.getMessage(), null);
 //                }
                 break;
+            case "getDeviceSnapshot": {
+                Number sinceVersion = call.argument("sinceVersion");
+                result.success(flutterCallerIdMethod.getDeviceSnapshot(sinceVersion == null ? 0 : sinceVersion.longValue()));
+                break;
+            }
             case "connectToHidDevice": {
                 String vendorId = call.argument("vendorId");
                 String productId = call.argument("productId");
@@ -76,6 +88,66 @@ public class FlutterCalleridPlugin implements FlutterPlugin, MethodCallHandler {
                 result.success(true);
                 break;
             }
+            case "sendCommand": {
+                String command = call.argument("command");
+                Number timeoutMs = call.argument("timeoutMs");
+                if (!flutterCallerIdMethod.sendCommand(command, timeoutMs == null ? COMMAND_TIMEOUT_MS : timeoutMs.longValue(), result::success)) {
+                    result.error("NOT_LISTENING", "No device is listening.", null);
+                }
+                break;
+            }
+            case "sendCommands": {
+                List<String> commands = call.argument("commands");
+                Number timeoutMs = call.argument("timeoutMs");
+                if (!flutterCallerIdMethod.sendCommands(commands, timeoutMs == null ? COMMAND_TIMEOUT_MS : timeoutMs.longValue(), result::success)) {
+                    result.error("NOT_LISTENING", "No device is listening.", null);
+                }
+                break;
+            }
+            case "setCommandWindow": {
+                Integer maxInFlight = call.argument("maxInFlight");
+                flutterCallerIdMethod.setCommandWindow(maxInFlight == null ? 1 : maxInFlight);
+                result.success(true);
+                break;
+            }
+            case "startNetworkListening": {
+                Integer udpPort = call.argument("udpPort");
+                List<String> hosts = call.argument("hosts");
+                try {
+                    result.success(flutterCallerIdMethod.startNetworkListening(udpPort, hosts));
+                } catch (Exception e) {
+                    result.error("NETWORK_LISTEN_FAILED", e.getMessage(), null);
+                }
+                break;
+            }
+            case "stopNetworkListening": {
+                flutterCallerIdMethod.stopNetworkListening();
+                result.success(true);
+                break;
+            }
+            case "startDiscovery": {
+                Integer scanId = call.argument("scanId");
+                String subnet = call.argument("subnet");
+                Integer port = call.argument("port");
+                Number timeoutMs = call.argument("timeoutMs");
+                Integer maxInFlight = call.argument("maxInFlight");
+                Integer maxResults = call.argument("maxResults");
+                try {
+                    flutterCallerIdMethod.startDiscovery(scanId == null ? 0 : scanId, subnet, port == null ? DISCOVERY_PORT : port,
+                            timeoutMs == null ? DISCOVERY_TIMEOUT_MS : timeoutMs.longValue(),
+                            maxInFlight == null ? DISCOVERY_MAX_IN_FLIGHT : maxInFlight,
+                            maxResults == null ? 0 : maxResults);
+                    result.success(true);
+                } catch (Exception e) {
+                    result.error("DISCOVERY_FAILED", e.getMessage(), null);
+                }
+                break;
+            }
+            case "stopDiscovery": {
+                flutterCallerIdMethod.stopDiscovery();
+                result.success(true);
+                break;
+            }
             case "isConnected": {
                 String vendorId = call.argument("vendorId");
                 String productId = call.argument("productId");
@@ -94,5 +166,7 @@ public class FlutterCalleridPlugin implements FlutterPlugin, MethodCallHandler {
         methodChannel.setMethodCallHandler(null);
         deviceEventChannel.setStreamHandler(null);
         callerIdEventChannel.setStreamHandler(null);
+        discoveryEventChannel.setStreamHandler(null);
+        flutterCallerIdMethod.dispose();
     }
 }
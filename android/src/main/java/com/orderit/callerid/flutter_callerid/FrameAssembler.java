@@ -0,0 +1,121 @@
+package com.orderit.callerid.flutter_callerid;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits a byte stream from one source into caller ID frames and text lines.
+ * <p>
+ * Stream transports do not preserve the device's packet boundaries, so bytes are buffered until
+ * a complete frame (validated by its check digit) or a CR/LF terminated line is available.
+ * Anything else is skipped one byte at a time until the stream lines up again.
+ */
+class FrameAssembler {
+    interface Listener {
+        void onFrame(byte[] frame);
+
+        void onText(String line);
+    }
+
+    private static final int CAPACITY = 512;
+
+    private final Listener listener;
+    private final byte[] buffer = new byte[CAPACITY];
+    private int size = 0;
+
+    FrameAssembler(Listener listener) {
+        this.listener = listener;
+    }
+
+    void feed(ByteBuffer data) {
+        while (data.hasRemaining()) {
+            int count = Math.min(data.remaining(), CAPACITY - size);
+            data.get(buffer, size, count);
+            size += count;
+            drain();
+            if (size == CAPACITY) {
+                // Nothing in a full buffer lines up; drop it rather than stall the source.
+                size = 0;
+            }
+        }
+    }
+
+    void feed(byte[] data, int offset, int length) {
+        feed(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Ends a datagram: a partial frame or line cannot continue in the next one.
+     */
+    void endOfPacket() {
+        if (size > 0 && isText(buffer[0])) {
+            emitText(size);
+        }
+        size = 0;
+    }
+
+    private void drain() {
+        int pos = 0;
+        while (pos < size) {
+            int consumed = consume(pos);
+            if (consumed == 0) break;
+            pos += consumed;
+        }
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, size - pos);
+            size -= pos;
+        }
+    }
+
+    // Returns how many bytes at pos were used up, or 0 when more data is needed.
+    private int consume(int pos) {
+        int available = size - pos;
+        int b = buffer[pos] & 0xFF;
+        if (CliFrameParser.isPort(b)) {
+            if (available < 3) return 0;
+            int frameLength = CliFrameParser.frameLength(buffer, pos, available);
+            if (frameLength > 0) {
+                if (available < frameLength) return 0;
+                byte[] frame = Arrays.copyOfRange(buffer, pos, pos + frameLength);
+                if (CliFrameParser.testCheckDigit(frame, frameLength)) {
+                    listener.onFrame(frame);
+                    return frameLength;
+                }
+            }
+        }
+        if (b == '\r' || b == '\n' || b == 0) return 1;
+        if (isText(buffer[pos])) {
+            for (int i = pos; i < size; i++) {
+                int c = buffer[i] & 0xFF;
+                if (c == '\r' || c == '\n') {
+                    emitText(pos, i);
+                    return i - pos + 1;
+                }
+                if (!isText(buffer[i])) {
+                    // Unterminated text is noise, but its last byte may be the port of a frame.
+                    int skip = CliFrameParser.isPort(buffer[i - 1]) ? i - pos - 1 : i - pos;
+                    return Math.max(skip, 1);
+                }
+            }
+            return 0;
+        }
+        return 1;
+    }
+
+    private void emitText(int end) {
+        emitText(0, end);
+    }
+
+    private void emitText(int from, int to) {
+        StringBuilder line = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            if (isText(buffer[i])) line.append((char) buffer[i]);
+        }
+        String text = line.toString().trim();
+        if (!text.isEmpty()) listener.onText(text);
+    }
+
+    private static boolean isText(byte b) {
+        return b >= 0x20 && b < 0x7F;
+    }
+}
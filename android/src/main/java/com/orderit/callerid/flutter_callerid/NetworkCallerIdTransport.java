@@ -0,0 +1,384 @@
+package com.orderit.callerid.flutter_callerid;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives caller ID data from Ethernet units on a single selector thread.
+ * <p>
+ * Any number of units can share one UDP port; each sender gets its own session so partial data
+ * from one unit never mixes with another. Units that stream over TCP are connected to and
+ * reconnected after they drop. Every session feeds the same {@link FrameAssembler} and
+ * {@link CliFrameParser} used for USB devices, and every read is numbered by the shared
+ * {@link EventSequencer}. Host names are resolved on a helper thread so a slow lookup never
+ * stalls the selector. Listening again on a UDP port or connecting again
+ * to the same TCP unit does nothing, so no event is ever delivered twice.
+ */
+class NetworkCallerIdTransport {
+    interface Listener {
+        void onRecord(String source, CliFrameParser.CallerIdRecord record, EventTrace trace);
+
+        void onSession(String source, boolean open);
+
+        void onError(String source, IOException e);
+    }
+
+    private static final int READ_BUFFER_SIZE = 2048;
+    private static final long SELECT_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 2000;
+    private static final long IDLE_SESSION_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final class Session implements FrameAssembler.Listener {
+        final String source;
+        final FrameAssembler assembler = new FrameAssembler(this);
+        long lastSeen = System.nanoTime();
+        // Read that delivered the bytes currently being framed.
+        long readSeq;
+        long readNanos;
+        long readWallMillis;
+
+        Session(String source) {
+            this.source = source;
+        }
+
+        // Frames {@code data}, flushing what is left when the packet or stream ends there.
+        void feed(ByteBuffer data, boolean packetEnds) {
+            readSeq = sequencer.begin();
+            try {
+                readNanos = clock.elapsedNanos();
+                readWallMillis = clock.wallMillis();
+                lastSeen = System.nanoTime();
+                assembler.feed(data);
+                if (packetEnds) assembler.endOfPacket();
+            } finally {
+                sequencer.end(readSeq);
+            }
+        }
+
+        @Override
+        public void onFrame(byte[] frame) {
+            EventTrace trace = new EventTrace(clock, readSeq, readNanos, readWallMillis);
+            trace.stamp(EventTrace.STAGE_FRAME);
+            CliFrameParser.CallerIdRecord record = CliFrameParser.testCliPackage(frame, frame.length);
+            trace.stamp(EventTrace.STAGE_PARSE);
+            if (record != null) listener.onRecord(source, record, trace);
+        }
+
+        @Override
+        public void onText(String line) {
+            EventTrace trace = new EventTrace(clock, readSeq, readNanos, readWallMillis);
+            trace.stamp(EventTrace.STAGE_FRAME);
+            CliFrameParser.CallerIdRecord record = CliFrameParser.parseTextRecord(line);
+            trace.stamp(EventTrace.STAGE_PARSE);
+            if (record != null) listener.onRecord(source, record, trace);
+        }
+    }
+
+    private static final class TcpTarget {
+        final String host;
+        final int port;
+        final Session session;
+        long reconnectAt;
+
+        TcpTarget(String host, int port, Session session) {
+            this.host = host;
+            this.port = port;
+            this.session = session;
+        }
+    }
+
+    private final Listener listener;
+    private final EventTrace.Clock clock;
+    private final EventSequencer sequencer;
+    // Direct, since every datagram and stream read lands here before being framed.
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Map<SocketAddress, Session> datagramSessions = new HashMap<>();
+    private final List<TcpTarget> reconnecting = new ArrayList<>();
+    // Guarded by this; what has been asked for, so repeated calls do not open a second socket.
+    private final Set<Integer> udpPorts = new HashSet<>();
+    private final Set<String> tcpTargets = new HashSet<>();
+    // Bound on the caller's thread but not registered yet; closed with the rest if never registered.
+    private final Set<DatagramChannel> unregisteredUdp = Collections.synchronizedSet(new HashSet<DatagramChannel>());
+    private Selector selector;
+    private Thread thread;
+    private ExecutorService resolver;
+    private volatile boolean running = false;
+
+    NetworkCallerIdTransport(Listener listener, EventTrace.Clock clock, EventSequencer sequencer) {
+        this.listener = listener;
+        this.clock = clock;
+        this.sequencer = sequencer;
+    }
+
+    synchronized void start() throws IOException {
+        if (running) return;
+        selector = Selector.open();
+        resolver = Executors.newSingleThreadExecutor();
+        running = true;
+        thread = new Thread(this::run, "callerid-network");
+        thread.start();
+    }
+
+    synchronized void stop() {
+        if (!running) return;
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        resolver.shutdownNow();
+        udpPorts.clear();
+        tcpTargets.clear();
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Binds a UDP port shared by every unit that sends to it; returns the bound port, which is
+     * useful when {@code port} is 0. A port already listened on is returned as is.
+     */
+    synchronized int listenUdp(int port) throws IOException {
+        if (!running) throw new IOException("Network transport is not running");
+        if (udpPorts.contains(port)) return port;
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setReuseAddress(true);
+            channel.socket().bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        int boundPort = channel.socket().getLocalPort();
+        udpPorts.add(boundPort);
+        unregisteredUdp.add(channel);
+        submit(() -> {
+            if (!unregisteredUdp.remove(channel)) return;
+            try {
+                channel.register(selector, SelectionKey.OP_READ);
+            } catch (IOException e) {
+                listener.onError("udp://:" + port, e);
+            }
+        });
+        return boundPort;
+    }
+
+    synchronized void connectTcp(String host, int port) {
+        if (!tcpTargets.add(host + ":" + port)) return;
+        TcpTarget target = new TcpTarget(host, port, new Session("tcp://" + host + ":" + port));
+        resolveAndConnect(target);
+    }
+
+    // Resolves the unit's name on every attempt, so a unit that changed address is found again.
+    private void resolveAndConnect(TcpTarget target) {
+        try {
+            resolver.execute(() -> {
+                InetSocketAddress address = new InetSocketAddress(target.host, target.port);
+                if (running) submit(() -> connect(target, address));
+            });
+        } catch (RejectedExecutionException e) {
+            // Stopping.
+        }
+    }
+
+    private void submit(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT_MS);
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.channel() instanceof DatagramChannel) {
+                        receiveDatagrams((DatagramChannel) key.channel());
+                    } else if (key.isConnectable()) {
+                        finishConnect(key);
+                    } else if (key.isReadable()) {
+                        readStream(key);
+                    }
+                }
+                long now = System.nanoTime();
+                reconnectDue(now);
+                evictIdleSessions(now);
+            } catch (IOException e) {
+                listener.onError(null, e);
+            }
+        }
+        closeAll();
+    }
+
+    private void receiveDatagrams(DatagramChannel channel) throws IOException {
+        while (true) {
+            readBuffer.clear();
+            SocketAddress from = channel.receive(readBuffer);
+            if (from == null) return;
+            readBuffer.flip();
+            Session session = datagramSessions.get(from);
+            if (session == null) {
+                session = new Session("udp://" + describe(from));
+                datagramSessions.put(from, session);
+                listener.onSession(session.source, true);
+            }
+            session.feed(readBuffer, true);
+        }
+    }
+
+    private void connect(TcpTarget target, InetSocketAddress address) {
+        if (address.isUnresolved()) {
+            retry(target, new UnknownHostException(target.host));
+            return;
+        }
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(address)) {
+                channel.register(selector, SelectionKey.OP_READ, target);
+                listener.onSession(target.session.source, true);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, target);
+            }
+        } catch (IOException e) {
+            closeQuietly(channel);
+            retry(target, e);
+        }
+    }
+
+    private void finishConnect(SelectionKey key) {
+        TcpTarget target = (TcpTarget) key.attachment();
+        try {
+            ((SocketChannel) key.channel()).finishConnect();
+            key.interestOps(SelectionKey.OP_READ);
+            listener.onSession(target.session.source, true);
+        } catch (IOException e) {
+            key.cancel();
+            closeQuietly(key.channel());
+            retry(target, e);
+        }
+    }
+
+    private void readStream(SelectionKey key) {
+        TcpTarget target = (TcpTarget) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        try {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) throw new IOException("Connection closed by " + target.session.source);
+            readBuffer.flip();
+            target.session.feed(readBuffer, false);
+        } catch (IOException e) {
+            key.cancel();
+            closeQuietly(channel);
+            target.session.feed(EMPTY, true);
+            listener.onSession(target.session.source, false);
+            retry(target, e);
+        }
+    }
+
+    private void retry(TcpTarget target, IOException e) {
+        listener.onError(target.session.source, e);
+        if (!running) return;
+        target.reconnectAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RECONNECT_DELAY_MS);
+        reconnecting.add(target);
+    }
+
+    private void reconnectDue(long now) {
+        if (reconnecting.isEmpty()) return;
+        List<TcpTarget> due = new ArrayList<>();
+        Iterator<TcpTarget> it = reconnecting.iterator();
+        while (it.hasNext()) {
+            TcpTarget target = it.next();
+            if (now - target.reconnectAt >= 0) {
+                it.remove();
+                due.add(target);
+            }
+        }
+        for (TcpTarget target : due) {
+            resolveAndConnect(target);
+        }
+    }
+
+    private void evictIdleSessions(long now) {
+        Iterator<Session> it = datagramSessions.values().iterator();
+        while (it.hasNext()) {
+            Session session = it.next();
+            if (now - session.lastSeen > TimeUnit.MILLISECONDS.toNanos(IDLE_SESSION_MS)) {
+                it.remove();
+                listener.onSession(session.source, false);
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            closeQuietly(key.channel());
+        }
+        synchronized (unregisteredUdp) {
+            for (DatagramChannel channel : unregisteredUdp) {
+                closeQuietly(channel);
+            }
+            unregisteredUdp.clear();
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+        datagramSessions.clear();
+        reconnecting.clear();
+        tasks.clear();
+    }
+
+    private static String describe(SocketAddress address) {
+        if (address instanceof InetSocketAddress) {
+            InetSocketAddress inet = (InetSocketAddress) address;
+            return inet.getAddress().getHostAddress() + ":" + inet.getPort();
+        }
+        return address.toString();
+    }
+
+    private static void closeQuietly(Channel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
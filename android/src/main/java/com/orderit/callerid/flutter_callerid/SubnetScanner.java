@@ -0,0 +1,198 @@
+package com.orderit.callerid.flutter_callerid;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds hosts accepting TCP connections on a port with non-blocking connect probes.
+ * <p>
+ * Up to {@code maxInFlight} probes share one selector and each host gets its own deadline, so a
+ * whole /24 answers in about one timeout instead of one timeout per batch. Hosts are reported
+ * as soon as their connect completes.
+ * <p>
+ * Every scan reports under the id it was started with. Starting a scan cancels the running one
+ * without waiting for it, so the old scan's last events can still arrive after the new one has
+ * started.
+ */
+class SubnetScanner {
+    interface Listener {
+        void onHost(int scanId, String address, int port, long latencyMs);
+
+        void onComplete(int scanId, int probed, int found, boolean cancelled);
+    }
+
+    private static final class Scan {
+        final int id;
+        final Selector selector;
+        volatile boolean cancelled = false;
+
+        Scan(int id, Selector selector) {
+            this.id = id;
+            this.selector = selector;
+        }
+
+        void cancel() {
+            cancelled = true;
+            selector.wakeup();
+        }
+    }
+
+    private static final class Probe {
+        final String address;
+        final long startedAt;
+        final long deadline;
+
+        Probe(String address, long startedAt, long deadline) {
+            this.address = address;
+            this.startedAt = startedAt;
+            this.deadline = deadline;
+        }
+    }
+
+    private final Listener listener;
+    private Scan current;
+
+    SubnetScanner(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Every host address of a /24 given as its first three octets, e.g. "192.168.1".
+     */
+    static List<String> subnetHosts(String prefix) {
+        List<String> hosts = new ArrayList<>(254);
+        for (int i = 1; i < 255; i++) {
+            hosts.add(prefix + "." + i);
+        }
+        return hosts;
+    }
+
+    synchronized void start(int scanId, List<String> hosts, int port, long timeoutMs, int maxInFlight, int maxResults) throws IOException {
+        Scan scan = new Scan(scanId, Selector.open());
+        if (current != null) current.cancel();
+        current = scan;
+        List<String> targets = new ArrayList<>(hosts);
+        new Thread(() -> scan(scan, targets, port, timeoutMs, Math.max(1, maxInFlight), maxResults), "callerid-discovery").start();
+    }
+
+    synchronized void cancel() {
+        if (current != null) current.cancel();
+    }
+
+    synchronized boolean isRunning() {
+        return current != null;
+    }
+
+    private void scan(Scan scan, List<String> hosts, int port, long timeoutMs, int maxInFlight, int maxResults) {
+        Selector selector = scan.selector;
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<SelectionKey> probes = new ArrayList<>();
+        int next = 0;
+        int found = 0;
+        try {
+            while (!scan.cancelled && (maxResults <= 0 || found < maxResults) && (next < hosts.size() || !probes.isEmpty())) {
+                while (next < hosts.size() && probes.size() < maxInFlight) {
+                    SelectionKey key = open(selector, hosts.get(next++), port, timeoutNanos);
+                    if (key != null) probes.add(key);
+                }
+                if (probes.isEmpty()) continue;
+
+                long wait = TimeUnit.NANOSECONDS.toMillis(nextDeadline(probes) - System.nanoTime());
+                if (wait > 0) {
+                    selector.select(wait);
+                } else {
+                    selector.selectNow();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Probe probe = (Probe) key.attachment();
+                    boolean connected;
+                    try {
+                        connected = ((SocketChannel) key.channel()).finishConnect();
+                    } catch (IOException e) {
+                        connected = false;
+                    }
+                    close(key);
+                    probes.remove(key);
+                    if (connected && (maxResults <= 0 || found < maxResults)) {
+                        found++;
+                        listener.onHost(scan.id, probe.address, port, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - probe.startedAt));
+                    }
+                }
+
+                long now = System.nanoTime();
+                Iterator<SelectionKey> pending = probes.iterator();
+                while (pending.hasNext()) {
+                    SelectionKey key = pending.next();
+                    if (now - ((Probe) key.attachment()).deadline >= 0) {
+                        close(key);
+                        pending.remove();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            scan.cancelled = true;
+        } finally {
+            for (SelectionKey key : probes) {
+                close(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+            synchronized (this) {
+                if (current == scan) current = null;
+            }
+            listener.onComplete(scan.id, next, found, scan.cancelled);
+        }
+    }
+
+    // Returns the key of the probe, or null when the connect could not even be started.
+    private static SelectionKey open(Selector selector, String address, int port, long timeoutNanos) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            long now = System.nanoTime();
+            boolean connected = channel.connect(new InetSocketAddress(address, port));
+            // A connect that completes at once is reported through the next select like the rest.
+            int ops = connected ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT;
+            return channel.register(selector, ops, new Probe(address, now, now + timeoutNanos));
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            return null;
+        }
+    }
+
+    private static long nextDeadline(List<SelectionKey> probes) {
+        long deadline = ((Probe) probes.get(0).attachment()).deadline;
+        for (SelectionKey key : probes) {
+            long probeDeadline = ((Probe) key.attachment()).deadline;
+            if (probeDeadline - deadline < 0) deadline = probeDeadline;
+        }
+        return deadline;
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+        }
+    }
+}
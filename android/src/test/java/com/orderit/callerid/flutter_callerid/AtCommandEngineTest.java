@@ -0,0 +1,211 @@
+package com.orderit.callerid.flutter_callerid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class AtCommandEngineTest {
+  private final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor();
+  private final ExecutorService writer = Executors.newSingleThreadExecutor();
+  private final List<String> written = new CopyOnWriteArrayList<>();
+  private final BlockingQueue<Map<String, Object>> results = new LinkedBlockingQueue<>();
+
+  @After
+  public void tearDown() {
+    timers.shutdownNow();
+    writer.shutdownNow();
+  }
+
+  private AtCommandEngine engine(int maxInFlight) {
+    return new AtCommandEngine(data -> written.add(new String(data, StandardCharsets.US_ASCII)), timers, writer, maxInFlight);
+  }
+
+  private static boolean feed(AtCommandEngine engine, String text) {
+    byte[] data = Arrays.copyOf(text.getBytes(StandardCharsets.US_ASCII), 64);
+    return engine.onData(data, text.length());
+  }
+
+  private void awaitWrites(int count) throws InterruptedException {
+    for (int i = 0; i < 100 && written.size() < count; i++) Thread.sleep(10);
+    assertEquals(count, written.size());
+  }
+
+  @Test
+  public void submit_writesCarriageReturnAndCompletesOnOk() throws Exception {
+    AtCommandEngine engine = engine(1);
+    engine.submit("AT+VCID=1", 1000, results::add);
+    awaitWrites(1);
+
+    assertEquals("AT+VCID=1\r", written.get(0));
+    assertTrue(feed(engine, "AT+VCID=1\r\r\nOK\r\n"));
+
+    Map<String, Object> result = results.poll(1, TimeUnit.SECONDS);
+    assertEquals(AtCommandEngine.STATUS_OK, result.get("status"));
+    assertEquals(Collections.emptyList(), result.get("lines"));
+    assertFalse(engine.isAwaitingResponse());
+  }
+
+  @Test
+  public void pipelinedCommands_areCorrelatedInOrder() throws Exception {
+    AtCommandEngine engine = engine(2);
+    engine.submit("AT+GMI", 1000, results::add);
+    engine.submit("AT+GMM", 1000, results::add);
+    engine.submit("AT+BAD", 1000, results::add);
+    awaitWrites(2);
+
+    feed(engine, "ACME\r\nOK\r\n");
+    awaitWrites(3);
+    feed(engine, "CID-4\r\nOK\r\n+CME ERROR: 4\r\n");
+
+    Map<String, Object> first = results.poll(1, TimeUnit.SECONDS);
+    Map<String, Object> second = results.poll(1, TimeUnit.SECONDS);
+    Map<String, Object> third = results.poll(1, TimeUnit.SECONDS);
+    assertEquals("AT+GMI", first.get("command"));
+    assertEquals(Collections.singletonList("ACME"), first.get("lines"));
+    assertEquals("AT+GMM", second.get("command"));
+    assertEquals(Collections.singletonList("CID-4"), second.get("lines"));
+    assertEquals(AtCommandEngine.STATUS_ERROR, third.get("status"));
+    assertEquals(Collections.singletonList("+CME ERROR: 4"), third.get("lines"));
+  }
+
+  @Test
+  public void lateReplyToTimedOutCommand_isNotGivenToTheNextOne() throws Exception {
+    AtCommandEngine engine = engine(1);
+    engine.submit("AT+SLOW", 50, results::add);
+    assertEquals(AtCommandEngine.STATUS_TIMEOUT, results.poll(1, TimeUnit.SECONDS).get("status"));
+
+    engine.submit("AT", 1000, results::add);
+    awaitWrites(2);
+    feed(engine, "OK\r\n");
+    assertEquals(null, results.poll(100, TimeUnit.MILLISECONDS));
+
+    feed(engine, "OK\r\n");
+    Map<String, Object> result = results.poll(1, TimeUnit.SECONDS);
+    assertEquals("AT", result.get("command"));
+    assertEquals(AtCommandEngine.STATUS_OK, result.get("status"));
+  }
+
+  @Test
+  public void binaryFramesAndIdleData_areLeftToTheCaller() throws Exception {
+    AtCommandEngine engine = engine(1);
+    assertFalse(feed(engine, "RING\r\n"));
+
+    engine.submit("AT", 1000, results::add);
+    byte[] frame = {'A', 0x04, 0x02, '1', '2', 0x00};
+    assertFalse(engine.onData(frame, frame.length));
+  }
+
+  @Test
+  public void failedWriteAndCancel_completeEveryCommand() throws Exception {
+    AtCommandEngine failing = new AtCommandEngine(data -> false, timers, writer, 1);
+    failing.submit("AT", 1000, results::add);
+    assertEquals(AtCommandEngine.STATUS_FAILED, results.poll(1, TimeUnit.SECONDS).get("status"));
+
+    AtCommandEngine engine = engine(1);
+    engine.submit("AT", 1000, results::add);
+    engine.submit("ATI", 1000, results::add);
+    engine.cancelAll();
+    assertEquals(AtCommandEngine.STATUS_CANCELLED, results.poll(1, TimeUnit.SECONDS).get("status"));
+    assertEquals(AtCommandEngine.STATUS_CANCELLED, results.poll(1, TimeUnit.SECONDS).get("status"));
+  }
+
+  @Test
+  public void silentDevice_leavesLaterTextToTheCaller() throws Exception {
+    AtCommandEngine engine = engine(1);
+    engine.submit("AT+VCID=1", 50, results::add);
+    assertEquals(AtCommandEngine.STATUS_TIMEOUT, results.poll(1, TimeUnit.SECONDS).get("status"));
+
+    assertFalse(engine.isAwaitingResponse());
+    assertFalse(feed(engine, "$01 I S 0612 0000 0612345678 JOHN\r\n"));
+    assertFalse(feed(engine, "RING\r\n"));
+  }
+
+  @Test
+  public void timedOutCommand_stopsOwingAReplyAfterItsGrace() throws Exception {
+    AtCommandEngine engine = engine(1);
+    engine.submit("AT+SLOW", 50, results::add);
+    assertEquals(AtCommandEngine.STATUS_TIMEOUT, results.poll(1, TimeUnit.SECONDS).get("status"));
+    Thread.sleep(600);
+
+    engine.submit("AT", 1000, results::add);
+    awaitWrites(2);
+    feed(engine, "OK\r\n");
+    Map<String, Object> result = results.poll(1, TimeUnit.SECONDS);
+    assertEquals("AT", result.get("command"));
+    assertEquals(AtCommandEngine.STATUS_OK, result.get("status"));
+  }
+
+  @Test
+  public void echoOfNextCommand_dropsTimedOutOne() throws Exception {
+    AtCommandEngine engine = engine(1);
+    engine.submit("AT+SLOW", 50, results::add);
+    assertEquals(AtCommandEngine.STATUS_TIMEOUT, results.poll(1, TimeUnit.SECONDS).get("status"));
+
+    engine.submit("AT+GMI", 1000, results::add);
+    awaitWrites(2);
+    feed(engine, "AT+GMI\r\nACME\r\nOK\r\n");
+    Map<String, Object> result = results.poll(1, TimeUnit.SECONDS);
+    assertEquals(AtCommandEngine.STATUS_OK, result.get("status"));
+    assertEquals(Collections.singletonList("ACME"), result.get("lines"));
+  }
+
+  @Test
+  public void stalledWrite_doesNotDelayOtherTimeouts() throws Exception {
+    AtCommandEngine engine = new AtCommandEngine(data -> {
+      try {
+        Thread.sleep(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return true;
+    }, timers, writer, 2);
+    long start = System.nanoTime();
+    engine.submit("AT", 100, results::add);
+    engine.submit("ATI", 100, results::add);
+
+    assertEquals(AtCommandEngine.STATUS_TIMEOUT, results.poll(1, TimeUnit.SECONDS).get("status"));
+    assertEquals(AtCommandEngine.STATUS_TIMEOUT, results.poll(1, TimeUnit.SECONDS).get("status"));
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+  }
+
+  @Test
+  public void laterCommandTimingOutFirst_keepsItsPlaceInReplyOrder() throws Exception {
+    AtCommandEngine engine = engine(2);
+    engine.submit("AT+GMI", 2000, results::add);
+    engine.submit("AT+GMM", 50, results::add);
+    awaitWrites(2);
+    Map<String, Object> timedOut = results.poll(1, TimeUnit.SECONDS);
+    assertEquals("AT+GMM", timedOut.get("command"));
+    assertEquals(AtCommandEngine.STATUS_TIMEOUT, timedOut.get("status"));
+
+    engine.submit("AT+GMR", 2000, results::add);
+    awaitWrites(3);
+    feed(engine, "ACME\r\nOK\r\n");
+    feed(engine, "CID-4\r\nOK\r\n");
+    feed(engine, "1.2\r\nOK\r\n");
+
+    Map<String, Object> first = results.poll(1, TimeUnit.SECONDS);
+    assertEquals("AT+GMI", first.get("command"));
+    assertEquals(AtCommandEngine.STATUS_OK, first.get("status"));
+    assertEquals(Collections.singletonList("ACME"), first.get("lines"));
+    Map<String, Object> third = results.poll(1, TimeUnit.SECONDS);
+    assertEquals("AT+GMR", third.get("command"));
+    assertEquals(Collections.singletonList("1.2"), third.get("lines"));
+    assertFalse(engine.isAwaitingResponse());
+  }
+}
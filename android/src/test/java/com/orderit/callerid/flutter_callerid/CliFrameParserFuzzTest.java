@@ -0,0 +1,142 @@
+package com.orderit.callerid.flutter_callerid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Replays the seed corpus in {@code src/test/resources/cli_corpus} and mutations of it through
+ * {@link CliFrameParserFuzzer}, and checks that line noise stays on the parser's fast path.
+ */
+public class CliFrameParserFuzzTest {
+  private static final int MUTATIONS = 200_000;
+  // Generous enough for a loaded CI machine; exception-driven parsing misses it by a wide margin.
+  private static final long MAX_NANOS_PER_FRAME = TimeUnit.MICROSECONDS.toNanos(20);
+
+  private static final List<byte[]> corpus = new ArrayList<>();
+
+  @BeforeClass
+  public static void loadCorpus() throws IOException, URISyntaxException {
+    URL url = CliFrameParserFuzzTest.class.getClassLoader().getResource("cli_corpus");
+    assertNotNull("seed corpus missing", url);
+    File[] files = new File(url.toURI()).listFiles();
+    assertNotNull(files);
+    Arrays.sort(files);
+    for (File file : files) {
+      corpus.add(Files.readAllBytes(file.toPath()));
+    }
+    assertTrue(corpus.size() >= 5);
+  }
+
+  private static byte[] seed(String name) throws IOException, URISyntaxException {
+    URL url = CliFrameParserFuzzTest.class.getClassLoader().getResource("cli_corpus/" + name);
+    return Files.readAllBytes(new File(url.toURI()).toPath());
+  }
+
+  @Test
+  public void seedCorpus_parsesToExpectedRecords() throws Exception {
+    byte[] sdmf = seed("sdmf_port_a.bin");
+    CliFrameParser.CallerIdRecord record = CliFrameParser.testCliPackage(sdmf, sdmf.length);
+    assertEquals('A', record.port);
+    assertEquals("10191030", record.dateTime);
+    assertEquals("0612345678", record.caller);
+
+    byte[] report = seed("sdmf_usb_report.bin");
+    assertEquals("18005550199", CliFrameParser.testCliPackage(report, report.length).caller);
+
+    byte[] mdmf = seed("mdmf_callee_name.bin");
+    record = CliFrameParser.testCliPackage(mdmf, mdmf.length);
+    assertEquals("01010001", record.dateTime);
+    assertEquals("+441632960961", record.caller);
+    assertEquals("2001", record.callee);
+    assertEquals("JOHN SMITH", record.other);
+
+    byte[] reply = seed("at_ok_reply.bin");
+    assertNull(CliFrameParser.testCliPackage(reply, reply.length));
+  }
+
+  @Test
+  public void corruptLengths_areRejectedWithoutThrowing() throws Exception {
+    byte[] mdmf = seed("mdmf_date_number.bin");
+    for (int b = 0; b < 256; b++) {
+      for (int index = 1; index < mdmf.length; index++) {
+        byte[] frame = mdmf.clone();
+        frame[index] = (byte) b;
+        CliFrameParserFuzzer.fuzzerTestOneInput(frame);
+        CliFrameParserFuzzer.fuzzerTestOneInput(Arrays.copyOf(frame, index));
+      }
+    }
+  }
+
+  @Test
+  public void mutatedCorpus_keepsParserInvariants() {
+    Random random = new Random(0x5DF);
+    for (int i = 0; i < MUTATIONS; i++) {
+      CliFrameParserFuzzer.fuzzerTestOneInput(mutate(random));
+    }
+  }
+
+  @Test
+  public void malformedInput_meetsThroughputGate() {
+    Random random = new Random(0xCA11);
+    byte[][] inputs = new byte[4096][];
+    for (int i = 0; i < inputs.length; i++) {
+      inputs[i] = mutate(random);
+    }
+    // Warm up so the gate measures compiled code.
+    for (int i = 0; i < MUTATIONS; i++) {
+      CliFrameParserFuzzer.fuzzerTestOneInput(inputs[i % inputs.length]);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MUTATIONS; i++) {
+      CliFrameParserFuzzer.fuzzerTestOneInput(inputs[i % inputs.length]);
+    }
+    long nanosPerFrame = (System.nanoTime() - start) / MUTATIONS;
+    assertTrue("parser took " + nanosPerFrame + "ns per malformed frame", nanosPerFrame < MAX_NANOS_PER_FRAME);
+  }
+
+  private static byte[] mutate(Random random) {
+    byte[] data = corpus.get(random.nextInt(corpus.size())).clone();
+    int edits = 1 + random.nextInt(4);
+    for (int e = 0; e < edits && data.length > 0; e++) {
+      int index = random.nextInt(data.length);
+      switch (random.nextInt(5)) {
+        case 0:
+          data[index] ^= (byte) (1 << random.nextInt(8));
+          break;
+        case 1:
+          // Values that used to break signed length arithmetic.
+          byte[] extremes = {0, 1, 0x7F, (byte) 0x80, (byte) 0xC0, (byte) 0xFF};
+          data[index] = extremes[random.nextInt(extremes.length)];
+          break;
+        case 2:
+          data[index] = (byte) random.nextInt(256);
+          break;
+        case 3:
+          data = Arrays.copyOf(data, index);
+          break;
+        default:
+          byte[] other = corpus.get(random.nextInt(corpus.size()));
+          byte[] spliced = Arrays.copyOf(data, index + other.length);
+          System.arraycopy(other, 0, spliced, index, other.length);
+          data = spliced;
+          break;
+      }
+    }
+    return data;
+  }
+}
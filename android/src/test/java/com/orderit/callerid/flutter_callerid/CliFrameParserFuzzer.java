@@ -0,0 +1,42 @@
+package com.orderit.callerid.flutter_callerid;
+
+/**
+ * Fuzz target for {@link CliFrameParser}.
+ * <p>
+ * {@link CliFrameParserFuzzTest} replays the seed corpus and random mutations through it on
+ * every unit test run. For coverage-guided fuzzing, point Jazzer's standalone driver at the
+ * compiled unit test classes:
+ *
+ * <pre>
+ * jazzer --cp=build/intermediates/javac/debugUnitTest/classes:build/intermediates/javac/debug/classes \
+ *     --target_class=com.orderit.callerid.flutter_callerid.CliFrameParserFuzzer \
+ *     src/test/resources/cli_corpus
+ * </pre>
+ */
+public class CliFrameParserFuzzer {
+  public static void fuzzerTestOneInput(byte[] data) {
+    int length = data.length;
+    CliFrameParser.CallerIdRecord record = CliFrameParser.testCliPackage(data, length);
+    if (record != null) {
+      int frameLength = CliFrameParser.frameLength(data, 0, length);
+      check(frameLength > 0 && frameLength <= length, "accepted a frame longer than the input");
+      check(CliFrameParser.testCheckDigit(data, frameLength), "accepted a frame with a bad check digit");
+      check(CliFrameParser.isPort(record.port), "accepted an unknown port");
+      int fields = record.dateTime.length() + record.caller.length() + record.callee.length() + record.other.length();
+      check(fields <= CliFrameParser.MAX_BODY_LENGTH, "decoded more characters than the frame holds");
+    }
+
+    // The parsers must also hold up when called with a length the header did not vouch for.
+    int claimed = length == 0 ? 0 : (data[length - 1] & 0xFF) % (length + 8);
+    CliFrameParser.parseSDMF(data, claimed);
+    CliFrameParser.parseMDMF(data, claimed);
+    CliFrameParser.testCheckDigit(data, claimed);
+    CliFrameParser.parseSDMF(data, length);
+    CliFrameParser.parseMDMF(data, length);
+    CliFrameParser.testCheckDigit(data, length);
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) throw new IllegalStateException(message);
+  }
+}
@@ -0,0 +1,47 @@
+package com.orderit.callerid.flutter_callerid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import org.junit.Test;
+
+public class DeviceClockTest {
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+  private static long utc(int year, int month, int day, int hour, int minute, int second) {
+    Calendar calendar = Calendar.getInstance(UTC);
+    calendar.clear();
+    calendar.set(year, month - 1, day, hour, minute, second);
+    return calendar.getTimeInMillis();
+  }
+
+  @Test
+  public void driftMillis_isZeroWithinTheSameMinute() {
+    assertEquals(Long.valueOf(0), DeviceClock.driftMillis("10191030", utc(2026, 10, 19, 10, 30, 42), UTC));
+  }
+
+  @Test
+  public void driftMillis_reportsDeviceAheadOrBehind() {
+    long host = utc(2026, 10, 19, 10, 30, 5);
+    assertEquals(Long.valueOf(3 * 60_000), DeviceClock.driftMillis("10191033", host, UTC));
+    assertEquals(Long.valueOf(-90 * 60_000), DeviceClock.driftMillis("10190900", host, UTC));
+  }
+
+  @Test
+  public void deviceMillis_picksTheYearClosestToTheHost() {
+    assertEquals(Long.valueOf(utc(2025, 12, 31, 23, 59, 0)), DeviceClock.deviceMillis("12312359", utc(2026, 1, 1, 0, 0, 30), UTC));
+    assertEquals(Long.valueOf(utc(2028, 2, 29, 12, 0, 0)), DeviceClock.deviceMillis("02291200", utc(2028, 2, 29, 12, 0, 0), UTC));
+  }
+
+  @Test
+  public void deviceMillis_rejectsInvalidTimes() {
+    long host = utc(2026, 10, 19, 10, 30, 0);
+    assertNull(DeviceClock.deviceMillis("", host, UTC));
+    assertNull(DeviceClock.deviceMillis("1019103", host, UTC));
+    assertNull(DeviceClock.deviceMillis("13011030", host, UTC));
+    assertNull(DeviceClock.deviceMillis("1019 030", host, UTC));
+    assertNull(DeviceClock.deviceMillis("02301200", host, UTC));
+  }
+}
@@ -0,0 +1,102 @@
+package com.orderit.callerid.flutter_callerid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class DeviceInventoryTest {
+  private static DeviceInventory.Device device(String vendorId, String productId) {
+    return new DeviceInventory.Device("CID " + productId, vendorId, productId);
+  }
+
+  @Test
+  public void add_recordsVersionedDelta() {
+    DeviceInventory inventory = new DeviceInventory();
+
+    Map<String, Object> delta = inventory.add(device("1155", "22352"), false);
+
+    assertEquals(DeviceInventory.DELTA_ADDED, delta.get("type"));
+    assertEquals(1L, delta.get("version"));
+    assertEquals(false, delta.get("connected"));
+    assertEquals(false, delta.get("isRemove"));
+    assertNull(inventory.add(device("1155", "22352"), false));
+    assertEquals(1L, inventory.getVersion());
+  }
+
+  @Test
+  public void permissionAndListening_onlyPublishRealChanges() {
+    DeviceInventory inventory = new DeviceInventory();
+    inventory.add(device("1155", "22352"), false);
+
+    Map<String, Object> granted = inventory.setPermission("1155", "22352", true);
+    assertEquals(DeviceInventory.DELTA_PERMISSION_CHANGED, granted.get("type"));
+    assertNull(inventory.setPermission("1155", "22352", true));
+    assertTrue(inventory.hasPermission("1155", "22352"));
+
+    Map<String, Object> listening = inventory.setListening("1155", "22352", true);
+    assertEquals(DeviceInventory.DELTA_LISTENING_CHANGED, listening.get("type"));
+    assertEquals(true, listening.get("listening"));
+    assertNull(inventory.setListening("9999", "1", true));
+
+    Map<String, Object> removed = inventory.remove("1155", "22352");
+    assertEquals(DeviceInventory.DELTA_REMOVED, removed.get("type"));
+    assertEquals(true, removed.get("isRemove"));
+    assertEquals(4L, inventory.getVersion());
+  }
+
+  @Test
+  public void reconcile_diffsAgainstScan() {
+    DeviceInventory inventory = new DeviceInventory();
+    inventory.reconcile(Arrays.asList(device("1", "1"), device("2", "2")), Collections.singleton("1:1"));
+
+    List<Map<String, Object>> changes =
+        inventory.reconcile(Arrays.asList(device("2", "2"), device("3", "3")), Collections.singleton("2:2"));
+
+    assertEquals(3, changes.size());
+    assertEquals(DeviceInventory.DELTA_PERMISSION_CHANGED, changes.get(0).get("type"));
+    assertEquals(DeviceInventory.DELTA_ADDED, changes.get(1).get("type"));
+    assertEquals(DeviceInventory.DELTA_REMOVED, changes.get(2).get("type"));
+    assertTrue(inventory.isSeeded());
+    assertEquals(2, inventory.getDevices().size());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void snapshotSince_returnsDeltasOrFullList() {
+    DeviceInventory inventory = new DeviceInventory();
+    inventory.add(device("1", "1"), false);
+    inventory.add(device("2", "2"), false);
+    inventory.setPermission("2", "2", true);
+
+    Map<String, Object> partial = inventory.snapshotSince(1);
+    assertEquals(false, partial.get("full"));
+    assertEquals(3L, partial.get("version"));
+    assertEquals(2, ((List<Map<String, Object>>) partial.get("deltas")).size());
+
+    Map<String, Object> upToDate = inventory.snapshotSince(3);
+    assertEquals(false, upToDate.get("full"));
+    assertTrue(((List<Map<String, Object>>) upToDate.get("deltas")).isEmpty());
+
+    Map<String, Object> full = inventory.snapshotSince(0);
+    assertEquals(true, full.get("full"));
+    assertEquals(2, ((List<Map<String, Object>>) full.get("devices")).size());
+  }
+
+  @Test
+  public void snapshotSince_fallsBackToFullListOnceDeltasAreDropped() {
+    DeviceInventory inventory = new DeviceInventory();
+    for (int i = 0; i < 100; i++) {
+      inventory.add(device("1", String.valueOf(i)), false);
+    }
+
+    assertEquals(true, inventory.snapshotSince(10).get("full"));
+    assertFalse((boolean) inventory.snapshotSince(90).get("full"));
+  }
+}
@@ -0,0 +1,60 @@
+package com.orderit.callerid.flutter_callerid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class EventSequencerTest {
+  private final List<String> emitted = new ArrayList<>();
+  private final EventSequencer sequencer = new EventSequencer(Runnable::run);
+
+  private void offer(long seq, String event) {
+    sequencer.offer(seq, () -> emitted.add(event));
+  }
+
+  @Test
+  public void laterReadFinishingFirst_waitsForEarlierRead() {
+    long usb = sequencer.begin();
+    long network = sequencer.begin();
+
+    offer(network, "network");
+    sequencer.end(network);
+    assertEquals(Collections.emptyList(), emitted);
+
+    offer(usb, "usb");
+    assertEquals(Collections.emptyList(), emitted);
+    sequencer.end(usb);
+    assertEquals(Arrays.asList("usb", "network"), emitted);
+    assertEquals(0, sequencer.queuedReads());
+  }
+
+  @Test
+  public void readWithoutEvents_releasesThoseBehindIt() {
+    long first = sequencer.begin();
+    long second = sequencer.begin();
+    offer(second, "b1");
+    offer(second, "b2");
+    sequencer.end(second);
+
+    sequencer.end(first);
+    assertEquals(Arrays.asList("b1", "b2"), emitted);
+  }
+
+  @Test
+  public void eventsOfEarlierReads_areNotHeldByLaterOnes() {
+    long first = sequencer.begin();
+    offer(first, "a");
+    sequencer.end(first);
+    long second = sequencer.begin();
+
+    assertEquals(Collections.singletonList("a"), emitted);
+    offer(second, "b");
+    assertEquals(Collections.singletonList("a"), emitted);
+    sequencer.end(second);
+    assertEquals(Arrays.asList("a", "b"), emitted);
+  }
+}
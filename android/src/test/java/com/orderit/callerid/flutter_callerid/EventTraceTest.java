@@ -0,0 +1,67 @@
+package com.orderit.callerid.flutter_callerid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class EventTraceTest {
+  private static final class FakeClock implements EventTrace.Clock {
+    long nanos = 1_000;
+
+    @Override
+    public long elapsedNanos() {
+      return nanos;
+    }
+
+    @Override
+    public long wallMillis() {
+      return 1_760_000_000_000L;
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void writeTo_reportsStagesAndLatency() {
+    FakeClock clock = new FakeClock();
+    EventTrace trace = EventTrace.atRead(clock, EventTrace.nextSeq());
+    clock.nanos = 1_500;
+    trace.stamp(EventTrace.STAGE_FRAME);
+    clock.nanos = 4_000;
+    trace.stamp(EventTrace.STAGE_PARSE);
+    clock.nanos = 5_000;
+    trace.stamp(EventTrace.STAGE_DISPATCH);
+
+    Map<String, Object> event = new HashMap<>();
+    trace.writeTo(event);
+    assertFalse(event.containsKey("latencyNanos"));
+
+    clock.nanos = 9_000;
+    trace.stamp(EventTrace.STAGE_SINK);
+    trace.writeTo(event);
+
+    Map<String, Object> stages = (Map<String, Object>) event.get("stages");
+    assertEquals(1_000L, event.get("rxNanos"));
+    assertEquals(1_760_000_000_000L, event.get("rxWallMs"));
+    assertEquals(1_500L, stages.get("frame"));
+    assertEquals(9_000L, stages.get("sink"));
+    assertEquals(8_000L, event.get("latencyNanos"));
+  }
+
+  @Test
+  public void seq_followsReadOrder() {
+    FakeClock clock = new FakeClock();
+    EventTrace first = EventTrace.atRead(clock, EventTrace.nextSeq());
+    long secondRead = EventTrace.nextSeq();
+    // Events framed out of the same read share its sequence number.
+    EventTrace sameRead = new EventTrace(clock, first.seq, first.readNanos, first.readWallMillis);
+    EventTrace second = new EventTrace(clock, secondRead, clock.elapsedNanos(), clock.wallMillis());
+
+    assertEquals(first.seq, sameRead.seq);
+    assertTrue(second.seq > first.seq);
+    assertEquals(first.readNanos, sameRead.readNanos);
+  }
+}
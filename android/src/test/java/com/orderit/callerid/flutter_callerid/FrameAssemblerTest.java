@@ -0,0 +1,95 @@
+package com.orderit.callerid.flutter_callerid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class FrameAssemblerTest {
+  private final List<byte[]> frames = new ArrayList<>();
+  private final List<String> lines = new ArrayList<>();
+  private final FrameAssembler assembler = new FrameAssembler(new FrameAssembler.Listener() {
+    @Override
+    public void onFrame(byte[] frame) {
+      frames.add(frame);
+    }
+
+    @Override
+    public void onText(String line) {
+      lines.add(line);
+    }
+  });
+
+  static byte[] sdmf(char port, String dateTime, String number) {
+    byte[] body = (dateTime + number).getBytes(StandardCharsets.US_ASCII);
+    byte[] frame = new byte[body.length + 4];
+    frame[0] = (byte) port;
+    frame[1] = 0x04;
+    frame[2] = (byte) body.length;
+    System.arraycopy(body, 0, frame, 3, body.length);
+    int sum = 0;
+    for (int i = 1; i < frame.length - 1; i++) sum += frame[i] & 0xFF;
+    frame[frame.length - 1] = (byte) (0x100 - (sum & 0xFF));
+    return frame;
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    int length = 0;
+    for (byte[] part : parts) length += part.length;
+    byte[] out = new byte[length];
+    int pos = 0;
+    for (byte[] part : parts) {
+      System.arraycopy(part, 0, out, pos, part.length);
+      pos += part.length;
+    }
+    return out;
+  }
+
+  @Test
+  public void frameSplitAcrossReads_isReassembled() {
+    byte[] frame = sdmf('A', "10191030", "0612345678");
+
+    assembler.feed(frame, 0, 5);
+    assertEquals(0, frames.size());
+    assembler.feed(frame, 5, frame.length - 5);
+
+    assertEquals(1, frames.size());
+    assertEquals("0612345678", CliFrameParser.testCliPackage(frames.get(0), frames.get(0).length).caller);
+  }
+
+  @Test
+  public void noiseTextAndFrames_areSeparated() {
+    byte[] first = sdmf('B', "10191030", "111");
+    byte[] second = sdmf('C', "10191031", "222");
+    byte[] corrupt = second.clone();
+    corrupt[5] ^= 0x01;
+    byte[] stream = concat(new byte[] {(byte) 0xFF, 0x00, 0x13}, first,
+        "garbage".getBytes(StandardCharsets.US_ASCII), corrupt,
+        "OK\r\n".getBytes(StandardCharsets.US_ASCII), second);
+
+    assembler.feed(stream, 0, stream.length);
+
+    assertEquals(2, frames.size());
+    assertEquals(Arrays.toString(first), Arrays.toString(frames.get(0)));
+    assertEquals(Arrays.toString(second), Arrays.toString(frames.get(1)));
+    assertEquals(Arrays.asList("OK"), lines);
+  }
+
+  @Test
+  public void endOfPacket_flushesUnterminatedText() {
+    byte[] record = "$01 I S 0000 G A1 10/19 10:30 PM 0612345678     JOHN SMITH".getBytes(StandardCharsets.US_ASCII);
+
+    assembler.feed(record, 0, record.length);
+    assembler.endOfPacket();
+
+    assertEquals(1, lines.size());
+    CliFrameParser.CallerIdRecord parsed = CliFrameParser.parseTextRecord(lines.get(0));
+    assertEquals('A', parsed.port);
+    assertEquals("10192230", parsed.dateTime);
+    assertEquals("0612345678", parsed.caller);
+    assertEquals("JOHN SMITH", parsed.other);
+  }
+}
@@ -0,0 +1,178 @@
+package com.orderit.callerid.flutter_callerid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Drives the transport with simulated units on the loopback interface.
+ */
+public class NetworkCallerIdTransportTest {
+  private static final class Received {
+    final String source;
+    final CliFrameParser.CallerIdRecord record;
+    final EventTrace trace;
+
+    Received(String source, CliFrameParser.CallerIdRecord record, EventTrace trace) {
+      this.source = source;
+      this.record = record;
+      this.trace = trace;
+    }
+  }
+
+  private final BlockingQueue<Received> records = new LinkedBlockingQueue<>();
+  private final BlockingQueue<String> opened = new LinkedBlockingQueue<>();
+  private NetworkCallerIdTransport transport;
+
+  @Before
+  public void setUp() throws IOException {
+    transport = new NetworkCallerIdTransport(new NetworkCallerIdTransport.Listener() {
+      @Override
+      public void onRecord(String source, CliFrameParser.CallerIdRecord record, EventTrace trace) {
+        records.add(new Received(source, record, trace));
+      }
+
+      @Override
+      public void onSession(String source, boolean open) {
+        if (open) opened.add(source);
+      }
+
+      @Override
+      public void onError(String source, IOException e) {
+      }
+    }, EventTrace.SYSTEM_CLOCK, new EventSequencer(Runnable::run));
+    transport.start();
+  }
+
+  @After
+  public void tearDown() {
+    transport.stop();
+  }
+
+  private static void send(DatagramSocket socket, int port, byte[] data) throws IOException {
+    socket.send(new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), port));
+  }
+
+  @Test
+  public void udpUnits_shareOnePortWithSeparateSessions() throws Exception {
+    int port = transport.listenUdp(0);
+    byte[] frame = FrameAssemblerTest.sdmf('A', "10191030", "0612345678");
+
+    try (DatagramSocket unit1 = new DatagramSocket(); DatagramSocket unit2 = new DatagramSocket()) {
+      // A partial frame from one unit must not be completed by another unit's datagram.
+      send(unit1, port, Arrays.copyOf(frame, 6));
+      send(unit2, port, frame);
+      send(unit1, port, "$02 I S 0000 G A1 10/19 09:05 AM 0611111111     JANE".getBytes(StandardCharsets.US_ASCII));
+
+      Received first = records.poll(2, TimeUnit.SECONDS);
+      Received second = records.poll(2, TimeUnit.SECONDS);
+      assertNotNull(first);
+      assertNotNull(second);
+      assertEquals("0612345678", first.record.caller);
+      assertEquals("0611111111", second.record.caller);
+      assertEquals('B', second.record.port);
+      assertEquals("10190905", second.record.dateTime);
+      assertNotEquals(first.source, second.source);
+      assertTrue(first.trace.seq < second.trace.seq);
+      assertTrue(first.trace.readNanos <= second.trace.readNanos);
+      assertTrue(first.trace.stage(EventTrace.STAGE_PARSE) >= first.trace.stage(EventTrace.STAGE_FRAME));
+      assertNull(records.poll(100, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Test
+  public void tcpUnit_streamIsFramedAcrossWrites() throws Exception {
+    byte[] frame = FrameAssemblerTest.sdmf('D', "10191030", "0698765432");
+    try (ServerSocket unit = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      transport.connectTcp("127.0.0.1", unit.getLocalPort());
+      try (Socket socket = unit.accept()) {
+        assertEquals("tcp://127.0.0.1:" + unit.getLocalPort(), opened.poll(2, TimeUnit.SECONDS));
+        OutputStream out = socket.getOutputStream();
+        out.write(frame, 0, 4);
+        out.flush();
+        Thread.sleep(50);
+        out.write(frame, 4, frame.length - 4);
+        out.write(frame);
+        out.flush();
+
+        assertEquals("0698765432", records.poll(2, TimeUnit.SECONDS).record.caller);
+        assertEquals('D', records.poll(2, TimeUnit.SECONDS).record.port);
+      }
+    }
+  }
+
+  @Test
+  public void tcpUnit_isReconnectedAfterDropping() throws Exception {
+    try (ServerSocket unit = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      transport.connectTcp("127.0.0.1", unit.getLocalPort());
+      unit.accept().close();
+      assertNotNull(opened.poll(2, TimeUnit.SECONDS));
+
+      try (Socket socket = unit.accept()) {
+        socket.getOutputStream().write(FrameAssemblerTest.sdmf('A', "10191030", "123"));
+        assertEquals("123", records.poll(5, TimeUnit.SECONDS).record.caller);
+      }
+    }
+  }
+
+  @Test
+  public void repeatedListenAndConnect_deliverEachEventOnce() throws Exception {
+    int port = transport.listenUdp(0);
+    assertEquals(port, transport.listenUdp(port));
+    try (DatagramSocket unit = new DatagramSocket()) {
+      send(unit, port, FrameAssemblerTest.sdmf('A', "10191030", "0612345678"));
+      assertEquals("0612345678", records.poll(2, TimeUnit.SECONDS).record.caller);
+      assertNull(records.poll(200, TimeUnit.MILLISECONDS));
+    }
+    opened.clear();
+
+    try (ServerSocket unit = new ServerSocket(0, 2, InetAddress.getLoopbackAddress())) {
+      transport.connectTcp("127.0.0.1", unit.getLocalPort());
+      transport.connectTcp("127.0.0.1", unit.getLocalPort());
+      try (Socket socket = unit.accept()) {
+        assertNotNull(opened.poll(2, TimeUnit.SECONDS));
+        assertNull(opened.poll(300, TimeUnit.MILLISECONDS));
+        socket.getOutputStream().write(FrameAssemblerTest.sdmf('B', "10191030", "0698765432"));
+        assertEquals("0698765432", records.poll(2, TimeUnit.SECONDS).record.caller);
+        assertNull(records.poll(200, TimeUnit.MILLISECONDS));
+      }
+    }
+  }
+
+  @Test
+  public void unresolvableUnit_doesNotStallOtherSessions() throws Exception {
+    transport.connectTcp("callerid-unit.invalid", 9100);
+    int port = transport.listenUdp(0);
+    try (DatagramSocket unit = new DatagramSocket()) {
+      send(unit, port, FrameAssemblerTest.sdmf('A', "10191030", "0612345678"));
+      assertEquals("0612345678", records.poll(2, TimeUnit.SECONDS).record.caller);
+    }
+  }
+
+  @Test
+  public void stop_closesUdpChannelsNotYetRegistered() throws Exception {
+    int port = transport.listenUdp(0);
+    transport.stop();
+
+    // Binds without SO_REUSEADDR, so it fails if the transport's socket leaked.
+    new DatagramSocket(port, InetAddress.getByName("0.0.0.0")).close();
+  }
+}
@@ -0,0 +1,116 @@
+package com.orderit.callerid.flutter_callerid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class SubnetScannerTest {
+  private static final long TIMEOUT_MS = 500;
+
+  private final BlockingQueue<String> hosts = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Integer> completedScans = new LinkedBlockingQueue<>();
+  private final CountDownLatch complete = new CountDownLatch(1);
+  private final int[] summary = new int[3];
+  private final SubnetScanner scanner = new SubnetScanner(new SubnetScanner.Listener() {
+    @Override
+    public void onHost(int scanId, String address, int port, long latencyMs) {
+      hosts.add(scanId + "/" + address);
+    }
+
+    @Override
+    public void onComplete(int scanId, int probed, int found, boolean cancelled) {
+      completedScans.add(scanId);
+      summary[0] = probed;
+      summary[1] = found;
+      summary[2] = cancelled ? 1 : 0;
+      complete.countDown();
+    }
+  });
+
+  // TEST-NET-1 addresses never answer, so their probes run into the deadline.
+  private static List<String> silentHosts(int count) {
+    List<String> addresses = new ArrayList<>();
+    for (int i = 1; i <= count; i++) addresses.add("192.0.2." + i);
+    return addresses;
+  }
+
+  @Test
+  public void subnetHosts_coversEveryHostAddress() {
+    List<String> addresses = SubnetScanner.subnetHosts("192.168.1");
+    assertEquals(254, addresses.size());
+    assertEquals("192.168.1.1", addresses.get(0));
+    assertEquals("192.168.1.254", addresses.get(253));
+  }
+
+  @Test
+  public void scan_reportsOpenHostsAndFinishesInAboutOneTimeout() throws Exception {
+    try (ServerSocket unit = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      List<String> targets = silentHosts(64);
+      targets.add(32, "127.0.0.1");
+      long start = System.nanoTime();
+
+      scanner.start(1, targets, unit.getLocalPort(), TIMEOUT_MS, 256, 0);
+
+      assertEquals("1/127.0.0.1", hosts.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      assertTrue(complete.await(5, TimeUnit.SECONDS));
+      long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertTrue("scan took " + elapsedMs + "ms", elapsedMs < TIMEOUT_MS * 2);
+      assertEquals(65, summary[0]);
+      assertEquals(1, summary[1]);
+      assertEquals(0, summary[2]);
+      assertFalse(scanner.isRunning());
+    }
+  }
+
+  @Test
+  public void scan_stopsAtMaxResults() throws Exception {
+    try (ServerSocket unit = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      List<String> targets = new ArrayList<>(Arrays.asList("127.0.0.1", "localhost"));
+      targets.addAll(silentHosts(8));
+
+      scanner.start(1, targets, unit.getLocalPort(), 10_000, 1, 1);
+
+      assertTrue(complete.await(2, TimeUnit.SECONDS));
+      assertEquals(1, summary[1]);
+      assertEquals(0, summary[2]);
+    }
+  }
+
+  @Test
+  public void cancel_endsScanEarly() throws Exception {
+    scanner.start(1, silentHosts(16), 9100, 10_000, 4, 0);
+    scanner.cancel();
+
+    assertTrue(complete.await(2, TimeUnit.SECONDS));
+    assertEquals(1, summary[2]);
+    assertTrue(hosts.isEmpty());
+  }
+
+  @Test
+  public void start_supersedesRunningScanWithoutWaiting() throws Exception {
+    try (ServerSocket unit = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      scanner.start(1, silentHosts(16), unit.getLocalPort(), 10_000, 4, 0);
+      long start = System.nanoTime();
+      scanner.start(2, Arrays.asList("127.0.0.1"), unit.getLocalPort(), TIMEOUT_MS, 4, 0);
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+
+      assertEquals("2/127.0.0.1", hosts.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      List<Integer> scans = new ArrayList<>();
+      scans.add(completedScans.poll(2, TimeUnit.SECONDS));
+      scans.add(completedScans.poll(2, TimeUnit.SECONDS));
+      assertTrue(scans.containsAll(Arrays.asList(1, 2)));
+      assertFalse(scanner.isRunning());
+    }
+  }
+}
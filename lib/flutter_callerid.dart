@@ -1,6 +1,7 @@
 import 'package:flutter_callerid/service/devices_service.dart';
 
 import 'flutter_callerid_platform_interface.dart';
+import 'model/command_response.dart';
 import 'model/usb_device_model.dart';
 
 class FlutterCallerid {
@@ -57,11 +58,31 @@ class FlutterCallerid {
     return await DevicesService().startListening(device);
   }
 
+  /// Start listening for caller ID data from network units on a UDP port and/or "host:port" TCP streams
+  Future<int> startNetworkListening({int? udpPort, List<String> hosts = const []}) async {
+    return await DevicesService().startNetworkListening(udpPort: udpPort, hosts: hosts);
+  }
+
   /// Stop listening for caller ID data
   Future<bool> stopListening() async {
     return await DevicesService().stopListening();
   }
 
+  /// Send an AT/vendor command to the listening device and wait for its final result code
+  Future<CommandResponse> sendCommand(String command, {Duration timeout = const Duration(seconds: 3)}) async {
+    return await DevicesService().sendCommand(command, timeout: timeout);
+  }
+
+  /// Send several commands at once; results come back in the same order
+  Future<List<CommandResponse>> sendCommands(List<String> commands, {Duration timeout = const Duration(seconds: 3)}) async {
+    return await DevicesService().sendCommands(commands, timeout: timeout);
+  }
+
+  /// Number of commands written ahead of their replies, for devices that accept pipelining
+  Future<bool> setCommandWindow(int maxInFlight) async {
+    return await DevicesService().setCommandWindow(maxInFlight);
+  }
+
   /// Get stream of caller ID events (phone numbers, connection status, etc.)
   Stream<String> get callerIdEvents {
     return FlutterCalleridPlatform.instance.callerIdEvents;
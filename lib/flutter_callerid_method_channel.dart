@@ -2,6 +2,7 @@ import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 
 import 'flutter_callerid_platform_interface.dart';
+import 'model/command_response.dart';
 
 /// An implementation of [FlutterCalleridPlatform] that uses method channels.
 class MethodChannelFlutterCallerid extends FlutterCalleridPlatform {
@@ -29,6 +30,12 @@ class MethodChannelFlutterCallerid extends FlutterCalleridPlatform {
     return await methodChannel.invokeMethod('getAvailableDevices');
   }
 
+  @override
+  Future<Map<String, dynamic>> getDeviceSnapshot(int sinceVersion) async {
+    final snapshot = await methodChannel.invokeMethod('getDeviceSnapshot', {'sinceVersion': sinceVersion});
+    return Map<String, dynamic>.from(snapshot);
+  }
+
   @override
   Future<bool> connectToHidDevice(String vid, String pid) async {
     return await methodChannel.invokeMethod('connectToHidDevice', {'vendorId': vid, 'productId': pid});
@@ -49,6 +56,63 @@ class MethodChannelFlutterCallerid extends FlutterCalleridPlatform {
     return await methodChannel.invokeMethod('stopListening');
   }
 
+  @override
+  Future<int> startNetworkListening({int? udpPort, List<String> hosts = const []}) async {
+    return await methodChannel.invokeMethod('startNetworkListening', {'udpPort': udpPort, 'hosts': hosts});
+  }
+
+  @override
+  Future<bool> stopNetworkListening() async {
+    return await methodChannel.invokeMethod('stopNetworkListening');
+  }
+
+  @override
+  Future<bool> startDiscovery(
+    String subnet, {
+    int port = 9100,
+    Duration timeout = const Duration(seconds: 2),
+    int maxInFlight = 256,
+    int maxResults = 0,
+    int scanId = 0,
+  }) async {
+    return await methodChannel.invokeMethod('startDiscovery', {
+      'subnet': subnet,
+      'port': port,
+      'timeoutMs': timeout.inMilliseconds,
+      'maxInFlight': maxInFlight,
+      'maxResults': maxResults,
+      'scanId': scanId,
+    });
+  }
+
+  @override
+  Future<bool> stopDiscovery() async {
+    return await methodChannel.invokeMethod('stopDiscovery');
+  }
+
+  @override
+  Future<CommandResponse> sendCommand(String command, {Duration timeout = const Duration(seconds: 3)}) async {
+    final result = await methodChannel.invokeMethod('sendCommand', {
+      'command': command,
+      'timeoutMs': timeout.inMilliseconds,
+    });
+    return CommandResponse.fromJson(Map<String, dynamic>.from(result));
+  }
+
+  @override
+  Future<List<CommandResponse>> sendCommands(List<String> commands, {Duration timeout = const Duration(seconds: 3)}) async {
+    final List<dynamic> results = await methodChannel.invokeMethod('sendCommands', {
+      'commands': commands,
+      'timeoutMs': timeout.inMilliseconds,
+    });
+    return results.map((result) => CommandResponse.fromJson(Map<String, dynamic>.from(result))).toList();
+  }
+
+  @override
+  Future<bool> setCommandWindow(int maxInFlight) async {
+    return await methodChannel.invokeMethod('setCommandWindow', {'maxInFlight': maxInFlight});
+  }
+
   @override
   Stream<String> get callerIdEvents {
     return eventChannel.receiveBroadcastStream().map((event) => event.toString());
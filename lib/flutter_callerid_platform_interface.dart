@@ -1,6 +1,7 @@
 import 'package:plugin_platform_interface/plugin_platform_interface.dart';
 
 import 'flutter_callerid_method_channel.dart';
+import 'model/command_response.dart';
 
 abstract class FlutterCalleridPlatform extends PlatformInterface {
   /// Constructs a FlutterCalleridPlatform.
@@ -31,6 +32,10 @@ abstract class FlutterCalleridPlatform extends PlatformInterface {
     throw UnimplementedError('startUsbScan() has not been implemented.');
   }
 
+  Future<Map<String, dynamic>> getDeviceSnapshot(int sinceVersion) {
+    throw UnimplementedError('getDeviceSnapshot() has not been implemented.');
+  }
+
   Future<bool> isConnected(String vid, String pid) {
     throw UnimplementedError('isConnected(vid: $vid, pid: $pid) has not been implemented.');
   }
@@ -55,6 +60,41 @@ abstract class FlutterCalleridPlatform extends PlatformInterface {
     throw UnimplementedError('stopListening() has not been implemented.');
   }
 
+  Future<int> startNetworkListening({int? udpPort, List<String> hosts = const []}) {
+    throw UnimplementedError('startNetworkListening() has not been implemented.');
+  }
+
+  Future<bool> stopNetworkListening() {
+    throw UnimplementedError('stopNetworkListening() has not been implemented.');
+  }
+
+  Future<bool> startDiscovery(
+    String subnet, {
+    int port = 9100,
+    Duration timeout = const Duration(seconds: 2),
+    int maxInFlight = 256,
+    int maxResults = 0,
+    int scanId = 0,
+  }) {
+    throw UnimplementedError('startDiscovery() has not been implemented.');
+  }
+
+  Future<bool> stopDiscovery() {
+    throw UnimplementedError('stopDiscovery() has not been implemented.');
+  }
+
+  Future<CommandResponse> sendCommand(String command, {Duration timeout = const Duration(seconds: 3)}) {
+    throw UnimplementedError('sendCommand() has not been implemented.');
+  }
+
+  Future<List<CommandResponse>> sendCommands(List<String> commands, {Duration timeout = const Duration(seconds: 3)}) {
+    throw UnimplementedError('sendCommands() has not been implemented.');
+  }
+
+  Future<bool> setCommandWindow(int maxInFlight) {
+    throw UnimplementedError('setCommandWindow() has not been implemented.');
+  }
+
   Stream<String> get callerIdEvents {
     throw UnimplementedError('callerIdEvents has not been implemented.');
   }
@@ -0,0 +1,36 @@
+class CommandResponse {
+  final String command;
+  final String status;
+  final List<String> lines;
+  final int elapsedMs;
+
+  CommandResponse({
+    required this.command,
+    required this.status,
+    this.lines = const [],
+    this.elapsedMs = 0,
+  });
+
+  bool get isOk => status == 'OK';
+
+  factory CommandResponse.fromJson(Map<String, dynamic> json) {
+    return CommandResponse(
+      command: json['command'] ?? '',
+      status: json['status'] ?? 'FAILED',
+      lines: List<String>.from(json['lines'] ?? const []),
+      elapsedMs: json['elapsedMs'] ?? 0,
+    );
+  }
+
+  Map<String, dynamic> toJson() {
+    final Map<String, dynamic> data = <String, dynamic>{};
+    data['command'] = command;
+    data['status'] = status;
+    data['lines'] = lines;
+    data['elapsedMs'] = elapsedMs;
+    return data;
+  }
+
+  @override
+  String toString() => 'CommandResponse($command: $status $lines)';
+}
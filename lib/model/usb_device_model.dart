@@ -16,6 +16,7 @@ class DeviceModel {
   ConnectionType? connectionType;
   bool? isConnected;
   bool? isRemove;
+  bool? isListening;
   String? vendorId;
   String? productId;
 
@@ -25,6 +26,7 @@ class DeviceModel {
     this.connectionType,
     this.isRemove,
     this.isConnected,
+    this.isListening,
     this.vendorId,
     this.productId,
   });
@@ -35,6 +37,7 @@ class DeviceModel {
     connectionType = _getConnectionTypeFromString(json['connectionType']);
     isConnected = json['isConnected'];
     isRemove = json['isRemove'];
+    isListening = json['isListening'];
     vendorId = json['vendorId'];
     productId = json['productId'];
   }
@@ -50,6 +53,7 @@ class DeviceModel {
     data['connectionType'] = connectionTypeString;
     data['isRemove'] = isRemove;
     data['isConnected'] = isConnected;
+    data['isListening'] = isListening;
     data['vendorId'] = vendorId;
     data['productId'] = productId;
     return data;
@@ -5,6 +5,7 @@ import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 import 'package:flutter_blue_plus/flutter_blue_plus.dart';
 import 'package:flutter_callerid/flutter_callerid_platform_interface.dart';
+import 'package:flutter_callerid/model/command_response.dart';
 import 'package:flutter_callerid/model/usb_device_model.dart';
 import 'package:network_info_plus/network_info_plus.dart';
 
@@ -29,15 +30,27 @@ class DevicesService {
   StreamSubscription? _bleSubscription;
   StreamSubscription? _usbSubscription;
   StreamSubscription? _callerIdSubscription;
+  StreamSubscription? _discoverySubscription;
+  Completer<void>? _discoveryDone;
+  int _discoveryScanId = 0;
 
   static const String _deviceChannelName = 'flutter_callerid/device_events';
   static const String _callerIdChannelName = 'flutter_callerid/callerid_events';
+  static const String _discoveryChannelName =
+      'flutter_callerid/discovery_events';
 
   final EventChannel _deviceEventChannel = EventChannel(_deviceChannelName);
   final EventChannel _callerIdEventChannel = EventChannel(_callerIdChannelName);
+  final EventChannel _discoveryEventChannel = EventChannel(
+    _discoveryChannelName,
+  );
 
   final List<DeviceModel> _devices = [];
   int _port = 9100;
+  int _usbInventoryVersion = 0;
+  bool _usbResyncing = false;
+  // Deltas received while a resync is in flight; the snapshot may predate them.
+  final List<Map<String, dynamic>> _pendingUsbDeltas = [];
 
   // Convenience getters for current state
   bool get isBleScanning => _scanningState[ConnectionType.BLE] ?? false;
@@ -80,6 +93,9 @@ class DevicesService {
         _updateScanningState(ConnectionType.USB, false);
       }
       if (stopNetwork) {
+        if (isNetworkScanning) {
+          await FlutterCalleridPlatform.instance.stopDiscovery();
+        }
         _updateScanningState(ConnectionType.NETWORK, false);
       }
     } catch (e) {
@@ -127,41 +143,57 @@ class DevicesService {
     if (ip != null) {
       // subnet
       final subnet = ip.substring(0, ip.lastIndexOf('.'));
-
-      // Process IPs in concurrent batches for faster scanning
-      const int batchSize = 25; // Process 25 IPs concurrently per batch
-      const int maxConcurrency = 50; // Maximum concurrent operations
-
-      List<Future<void>> allBatches = [];
-
-      for (int startIp = 1; startIp <= 255; startIp += batchSize) {
-        if (!_scanningState[ConnectionType.NETWORK]!) break;
-
-        int endIp = (startIp + batchSize - 1).clamp(1, 255);
-        allBatches.add(
-          _processBatchOfIPs(subnet, startIp, endIp, cloudPrinterNum),
-        );
-
-        // Limit concurrent batches to avoid overwhelming the system
-        if (allBatches.length >= maxConcurrency ~/ batchSize) {
-          await Future.wait(allBatches);
-          allBatches.clear();
-
-          // Check if we found enough devices
-          final foundDevices =
-              _devices
-                  .where((d) => d.connectionType == ConnectionType.NETWORK)
-                  .length;
-          if (foundDevices >= cloudPrinterNum) {
-            break;
-          }
-        }
+      final done = Completer<void>();
+      // A scan still running is superseded; events it has yet to send carry its own id.
+      final scanId = ++_discoveryScanId;
+      final previousDone = _discoveryDone;
+      if (previousDone != null && !previousDone.isCompleted) {
+        previousDone.complete();
       }
+      _discoveryDone = done;
+
+      // Hosts stream in from the native scanner as soon as they answer
+      await _discoverySubscription?.cancel();
+      final subscription = _discoveryEventChannel
+          .receiveBroadcastStream()
+          .listen((event) {
+            final map = Map<String, dynamic>.from(event);
+            if (map['scanId'] != scanId) return;
+            if (map['type'] == 'host') {
+              final String address = map['address'];
+              debugPrint('Valid device found $address in ${map['latencyMs']}ms');
+              _updateOrAddPrinter(
+                DeviceModel(
+                  address: address,
+                  name: 'Cloud Printer ${address.substring(address.lastIndexOf('.') + 1)}',
+                  connectionType: ConnectionType.NETWORK,
+                  isConnected: false,
+                ),
+              );
+            } else if (map['type'] == 'done' && !done.isCompleted) {
+              done.complete();
+            }
+          }, onError: (e) {
+            debugPrint('Error in network discovery: $e');
+            if (!done.isCompleted) done.complete();
+          });
+      _discoverySubscription = subscription;
 
-      // Wait for remaining batches
-      if (allBatches.isNotEmpty) {
-        await Future.wait(allBatches);
+      try {
+        await FlutterCalleridPlatform.instance.startDiscovery(
+          subnet,
+          port: _port,
+          maxResults: cloudPrinterNum,
+          scanId: scanId,
+        );
+        await done.future;
+      } catch (e) {
+        debugPrint('Failed to start network discovery: $e');
       }
+      await subscription.cancel();
+      if (scanId != _discoveryScanId) return;
+      _discoverySubscription = null;
+      _discoveryDone = null;
       _updateScanningState(ConnectionType.NETWORK, false);
 
       // remove duplicates by address
@@ -172,65 +204,6 @@ class DevicesService {
     }
   }
 
-  Future<void> _processBatchOfIPs(
-    String subnet,
-    int startIp,
-    int endIp,
-    int maxDevices,
-  ) async {
-    if (!_scanningState[ConnectionType.NETWORK]!) return;
-
-    List<Future<DeviceModel?>> pingFutures = [];
-
-    for (int i = startIp; i <= endIp; i++) {
-      if (!_scanningState[ConnectionType.NETWORK]!) return;
-
-      final deviceIp = '$subnet.$i';
-      pingFutures.add(_pingAndCreateDevice(deviceIp, i));
-    }
-
-    try {
-      final results = await Future.wait(pingFutures);
-
-      for (final device in results) {
-        if (device != null && _scanningState[ConnectionType.NETWORK]!) {
-          debugPrint('Valid device found ${device.address}');
-          _devices.add(device);
-
-          // Check if we've reached the limit
-          final networkDeviceCount =
-              _devices
-                  .where((d) => d.connectionType == ConnectionType.NETWORK)
-                  .length;
-          if (networkDeviceCount >= maxDevices) {
-            _updateScanningState(ConnectionType.NETWORK, false);
-            break;
-          }
-        }
-      }
-    } catch (e) {
-      debugPrint('Error in batch processing: $e');
-    }
-  }
-
-  Future<DeviceModel?> _pingAndCreateDevice(String ip, int deviceNumber) async {
-    try {
-      final isValid = await _pingConnection(ip);
-      if (isValid) {
-        return DeviceModel(
-          address: ip,
-          name: 'Cloud Printer $deviceNumber',
-          connectionType: ConnectionType.NETWORK,
-          isConnected: false,
-        );
-      }
-      return null;
-    } catch (error) {
-      debugPrint('Failed to ping $ip ${error.toString()}');
-      return null;
-    }
-  }
-
   Future<bool> _pingConnection(String ip) async {
     try {
       final socket = await Socket.connect(
@@ -312,40 +285,14 @@ class DevicesService {
 
   Future<void> _getUSBDevices() async {
     try {
-      final devices = await FlutterCalleridPlatform.instance.startUsbScan();
-      List<DeviceModel> usbPrinters = [];
-      for (var map in devices) {
-        final device = DeviceModel(
-          vendorId: map['vendorId'].toString(),
-          productId: map['productId'].toString(),
-          name: map['name'],
-          connectionType: ConnectionType.USB,
-          address: map['vendorId'].toString(),
-          isConnected: map['connected'] ?? false,
-          isRemove: map['isRemove'] ?? false,
-        );
-        // device.isConnected = await FlutterCalleridPlatform.instance.isConnected(device.vendorId!, device.productId!);
-        usbPrinters.add(device);
-      }
-
-      _devices.addAll(usbPrinters);
+      final snapshot = await FlutterCalleridPlatform.instance.getDeviceSnapshot(0);
+      _applyUsbSnapshot(snapshot);
 
-      // Start listening to USB events
+      // Start listening to USB inventory deltas
       _usbSubscription = _deviceEventChannel.receiveBroadcastStream().listen((
         event,
       ) {
-        final map = Map<String, dynamic>.from(event);
-        _updateOrAddPrinter(
-          DeviceModel(
-            vendorId: map['vendorId'].toString(),
-            productId: map['productId'].toString(),
-            name: map['name'],
-            connectionType: ConnectionType.USB,
-            address: map['vendorId'].toString(),
-            isConnected: map['connected'] ?? false,
-            isRemove: map['isRemove'] ?? false,
-          ),
-        );
+        _applyUsbDelta(Map<String, dynamic>.from(event));
       });
 
       _sortDevices();
@@ -355,6 +302,88 @@ class DevicesService {
     }
   }
 
+  DeviceModel _usbDeviceFromMap(Map<String, dynamic> map) {
+    return DeviceModel(
+      vendorId: map['vendorId'].toString(),
+      productId: map['productId'].toString(),
+      name: map['name'],
+      connectionType: ConnectionType.USB,
+      address: map['vendorId'].toString(),
+      isConnected: map['connected'] ?? false,
+      isRemove: map['isRemove'] ?? false,
+      isListening: map['listening'] ?? false,
+    );
+  }
+
+  void _applyUsbSnapshot(Map<String, dynamic> snapshot) {
+    if (snapshot['full'] == true) {
+      _devices.removeWhere((d) => d.connectionType == ConnectionType.USB);
+      for (var map in snapshot['devices']) {
+        _devices.add(_usbDeviceFromMap(Map<String, dynamic>.from(map)));
+      }
+    } else {
+      for (var delta in snapshot['deltas']) {
+        _applyUsbChange(Map<String, dynamic>.from(delta));
+      }
+    }
+    _usbInventoryVersion = snapshot['version'];
+  }
+
+  void _applyUsbDelta(Map<String, dynamic> delta) {
+    final int version = delta['version'];
+    if (version <= _usbInventoryVersion) return;
+    if (_usbResyncing) {
+      _pendingUsbDeltas.add(delta);
+      return;
+    }
+    if (version != _usbInventoryVersion + 1) {
+      // A delta was missed, fetch what changed since our version instead.
+      _resyncUsbInventory();
+      return;
+    }
+    _applyUsbChange(delta);
+    _usbInventoryVersion = version;
+    _sortDevices();
+  }
+
+  void _applyUsbChange(Map<String, dynamic> delta) {
+    final index = _devices.indexWhere(
+      (d) =>
+          d.connectionType == ConnectionType.USB &&
+          d.vendorId == delta['vendorId'].toString() &&
+          d.productId == delta['productId'].toString(),
+    );
+    final device = _usbDeviceFromMap(delta);
+    if (index == -1) {
+      _devices.add(device);
+    } else {
+      _devices[index] = device;
+    }
+  }
+
+  Future<void> _resyncUsbInventory() async {
+    if (_usbResyncing) return;
+    _usbResyncing = true;
+    try {
+      final snapshot = await FlutterCalleridPlatform.instance.getDeviceSnapshot(
+        _usbInventoryVersion,
+      );
+      _applyUsbSnapshot(snapshot);
+      _sortDevices();
+    } catch (e) {
+      log("$e [USB Resync]");
+    } finally {
+      _usbResyncing = false;
+    }
+    // Replay what arrived meanwhile; anything the snapshot already covers is skipped.
+    final pending = List<Map<String, dynamic>>.from(_pendingUsbDeltas)
+      ..sort((a, b) => (a['version'] as int).compareTo(b['version'] as int));
+    _pendingUsbDeltas.clear();
+    for (final delta in pending) {
+      _applyUsbDelta(delta);
+    }
+  }
+
   Future<bool> connect(DeviceModel device) async {
     if (device.connectionType == ConnectionType.USB) {
       return await FlutterCalleridPlatform.instance.connectToHidDevice(
@@ -416,27 +445,80 @@ class DevicesService {
   }
 
   Future<bool> startListening(DeviceModel device) async {
+    _listenCallerIdEvents();
+
+    if (device.connectionType == ConnectionType.NETWORK) {
+      await FlutterCalleridPlatform.instance.startNetworkListening(
+        hosts: ['${device.address}:$_port'],
+      );
+      return true;
+    }
+
+    return FlutterCalleridPlatform.instance.startListening(
+      device.vendorId!,
+      device.productId!,
+    );
+  }
+
+  /// Receive from Ethernet units sending to a shared UDP port and/or streaming over TCP
+  Future<int> startNetworkListening({
+    int? udpPort,
+    List<String> hosts = const [],
+  }) async {
+    _listenCallerIdEvents();
+    return FlutterCalleridPlatform.instance.startNetworkListening(
+      udpPort: udpPort,
+      hosts: hosts,
+    );
+  }
+
+  void _listenCallerIdEvents() {
     _callerIdSubscription?.cancel();
     _callerIdSubscription = _callerIdEventChannel
         .receiveBroadcastStream()
         .listen((event) {
           final map = Map<String, dynamic>.from(event);
-          log("Received Caller ID: ${map['caller']} at ${map['datetime']}");
+          // Events arrive in read order (seq) across ports and devices; latencyNanos is read to sink.
+          final latencyMs = (map['latencyNanos'] ?? 0) / 1000000;
+          log(
+            "Received Caller ID #${map['seq']}: ${map['caller']} at ${map['datetime']} from ${map['source']} "
+            "(latency ${latencyMs.toStringAsFixed(2)}ms, device clock drift ${map['deviceClockDriftMs']}ms)",
+          );
           _callerIdStream.add(map);
         });
-
-    return FlutterCalleridPlatform.instance.startListening(
-      device.vendorId!,
-      device.productId!,
-    );
   }
 
   Future<bool> stopListening() async {
     await _callerIdSubscription?.cancel();
     _callerIdSubscription = null;
+    await FlutterCalleridPlatform.instance.stopNetworkListening();
     return FlutterCalleridPlatform.instance.stopListening();
   }
 
+  Future<CommandResponse> sendCommand(
+    String command, {
+    Duration timeout = const Duration(seconds: 3),
+  }) {
+    return FlutterCalleridPlatform.instance.sendCommand(
+      command,
+      timeout: timeout,
+    );
+  }
+
+  Future<List<CommandResponse>> sendCommands(
+    List<String> commands, {
+    Duration timeout = const Duration(seconds: 3),
+  }) {
+    return FlutterCalleridPlatform.instance.sendCommands(
+      commands,
+      timeout: timeout,
+    );
+  }
+
+  Future<bool> setCommandWindow(int maxInFlight) {
+    return FlutterCalleridPlatform.instance.setCommandWindow(maxInFlight);
+  }
+
   Future<List<DeviceModel>> _getBLESystemDevices() async {
     return (await FlutterBluePlus.systemDevices([]))
         .map(
@@ -541,5 +623,6 @@ class DevicesService {
     _bleSubscription?.cancel();
     _usbSubscription?.cancel();
     _callerIdSubscription?.cancel();
+    _discoverySubscription?.cancel();
   }
 }
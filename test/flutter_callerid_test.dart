@@ -1,3 +1,4 @@
+import 'package:flutter_callerid/model/command_response.dart';
 import 'package:flutter_callerid/model/usb_device_model.dart';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:flutter_callerid/flutter_callerid.dart';
@@ -31,6 +32,12 @@ class MockFlutterCalleridPlatform with MockPlatformInterfaceMixin implements Flu
     throw UnimplementedError();
   }
 
+  @override
+  Future<Map<String, dynamic>> getDeviceSnapshot(int sinceVersion) {
+    // TODO: implement getDeviceSnapshot
+    throw UnimplementedError();
+  }
+
   @override
   Future<bool> isConnected(String vid, String pid) {
     // TODO: implement isConnected
@@ -49,6 +56,55 @@ class MockFlutterCalleridPlatform with MockPlatformInterfaceMixin implements Flu
     throw UnimplementedError();
   }
 
+  @override
+  Future<int> startNetworkListening({int? udpPort, List<String> hosts = const []}) {
+    // TODO: implement startNetworkListening
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<bool> stopNetworkListening() {
+    // TODO: implement stopNetworkListening
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<bool> startDiscovery(
+    String subnet, {
+    int port = 9100,
+    Duration timeout = const Duration(seconds: 2),
+    int maxInFlight = 256,
+    int maxResults = 0,
+    int scanId = 0,
+  }) {
+    // TODO: implement startDiscovery
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<bool> stopDiscovery() {
+    // TODO: implement stopDiscovery
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<CommandResponse> sendCommand(String command, {Duration timeout = const Duration(seconds: 3)}) {
+    // TODO: implement sendCommand
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<List<CommandResponse>> sendCommands(List<String> commands, {Duration timeout = const Duration(seconds: 3)}) {
+    // TODO: implement sendCommands
+    throw UnimplementedError();
+  }
+
+  @override
+  Future<bool> setCommandWindow(int maxInFlight) {
+    // TODO: implement setCommandWindow
+    throw UnimplementedError();
+  }
+
   @override
   Future<bool> stopListening() {
     // TODO: implement stopListening